@@ -0,0 +1,67 @@
+package com.hitcounter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flash effects rendering into a headless canvas-sized image, one style at a time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class FlashBenchmark
+{
+    @Param({"PULSE", "BORDER", "CORNER", "FADE"})
+    public String flashStyle;
+
+    private BenchmarkFixture fixture;
+    private HitCounterConfig.FlashStyle style;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        fixture = new BenchmarkFixture();
+        style = HitCounterConfig.FlashStyle.valueOf(flashStyle);
+
+        image = new BufferedImage(BenchmarkFixture.CANVAS_WIDTH, BenchmarkFixture.CANVAS_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        graphics = image.createGraphics();
+        fixture.flash.trigger(style, Color.RED, 20, HitCounterConfig.FadeCurve.LINEAR);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public Dimension flash()
+    {
+        // A 20 tick flash lasts 600 cycles; retrigger well before it expires
+        if ((++fixture.gameCycle & 255) == 0)
+        {
+            fixture.flash.trigger(style, Color.RED, 20, HitCounterConfig.FadeCurve.LINEAR);
+        }
+        return fixture.flash.render(graphics);
+    }
+}
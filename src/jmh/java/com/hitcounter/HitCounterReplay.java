@@ -0,0 +1,227 @@
+package com.hitcounter;
+
+import net.runelite.api.HitsplatID;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Replays an event log through {@link HitCounterEngine} at full speed and checks the outcome.
+ * <p>
+ * Without {@code --log}, a seeded raid-like log is generated: several rooms of
+ * NPCs hit on most ticks, with multi-hit attacks, zeros, kills, the odd player
+ * death and a mid-log config change. Each log is replayed twice to check the
+ * engine is deterministic. With {@code --golden}, the final counters and fired
+ * triggers are compared to that file, which is written if it does not exist yet.
+ * <pre>
+ * ./gradlew replay -Preplay.args="--hits 10000000 --golden build/replay.golden"
+ * </pre>
+ */
+public class HitCounterReplay
+{
+    private static final int ROOM_SIZE = 8;
+    private static final int NPC_HITPOINTS = 2500;
+
+    public static void main(String[] args) throws IOException
+    {
+        int hits = 5_000_000;
+        long seed = 1;
+        Path logFile = null;
+        Path writeFile = null;
+        Path goldenFile = null;
+
+        for (int i = 0; i < args.length; i++)
+        {
+            switch (args[i])
+            {
+                case "--hits":
+                    hits = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--log":
+                    logFile = Paths.get(args[++i]);
+                    break;
+                case "--write":
+                    writeFile = Paths.get(args[++i]);
+                    break;
+                case "--golden":
+                    goldenFile = Paths.get(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+
+        BenchmarkFixture fixture = new BenchmarkFixture();
+        fixture.set("triggerHitCount", 7);
+        fixture.set("triggerMode", HitCounterConfig.AudioTriggerMode.EVERY);
+        fixture.set("triggerEffectMode", HitCounterConfig.TriggerEffectMode.FLASH);
+        HitCounterSettings initial = HitCounterSettings.from(fixture.config);
+
+        HitEventLog log;
+        if (logFile != null)
+        {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logFile))))
+            {
+                log = HitEventLog.read(in);
+            }
+        }
+        else
+        {
+            fixture.set("counterScope", HitCounterConfig.CounterScope.TARGET);
+            fixture.set("onlyCountSuccessfulHits", true);
+            log = generate(hits, seed, HitCounterSettings.from(fixture.config));
+        }
+
+        if (writeFile != null)
+        {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(writeFile))))
+            {
+                log.write(out);
+            }
+        }
+
+        String first = run(log, initial, true);
+        String second = run(log, initial, false);
+        if (!first.equals(second))
+        {
+            fail("Replay is not deterministic:\n" + first + "\n---\n" + second);
+        }
+
+        System.out.print(first);
+
+        if (goldenFile != null)
+        {
+            if (Files.exists(goldenFile))
+            {
+                String expected = new String(Files.readAllBytes(goldenFile), StandardCharsets.UTF_8);
+                if (!expected.equals(first))
+                {
+                    fail("Replay does not match " + goldenFile + ":\n" + expected);
+                }
+                System.out.println("Matches " + goldenFile);
+            }
+            else
+            {
+                Files.write(goldenFile, first.getBytes(StandardCharsets.UTF_8));
+                System.out.println("Wrote " + goldenFile);
+            }
+        }
+    }
+
+    private static String run(HitEventLog log, HitCounterSettings initial, boolean timed)
+    {
+        int[] triggers = new int[HitCounterConfig.TriggerEffectMode.values().length];
+        HitCounterEngine engine = new HitCounterEngine((effect, count) -> triggers[effect.ordinal()]++);
+        engine.configure(initial);
+
+        long start = System.nanoTime();
+        log.replay(engine);
+        engine.flush();
+        long elapsed = System.nanoTime() - start;
+
+        if (timed)
+        {
+            System.out.printf("Replayed %,d events in %.1f ms (%,.0f events/s)%n",
+                    log.size(), elapsed / 1e6, log.size() / (elapsed / 1e9));
+        }
+
+        StringBuilder result = new StringBuilder();
+        result.append("count=").append(engine.getCount()).append('\n');
+        result.append("aggregateHits=").append(engine.getAggregateHits()).append('\n');
+        result.append("aggregateAttacks=").append(engine.getAggregateAttacks()).append('\n');
+        result.append("target=").append(engine.getTargetIndex()).append('\n');
+        result.append("lastAttackTick=").append(engine.getLastAttackTick()).append('\n');
+        for (HitCounterConfig.TriggerEffectMode effect : HitCounterConfig.TriggerEffectMode.values())
+        {
+            result.append("triggers.").append(effect.name()).append('=').append(triggers[effect.ordinal()]).append('\n');
+        }
+        return result.toString();
+    }
+
+    /**
+     * Generates a raid: rooms of {@link #ROOM_SIZE} NPCs fought until all are dead.
+     * Every tick the player lands one attack, which is a scythe-like triple hit a third of the time.
+     */
+    static HitEventLog generate(int hits, long seed, HitCounterSettings laterSettings)
+    {
+        Random random = new Random(seed);
+        HitEventLog log = new HitEventLog(hits + hits / 2);
+
+        int[] hitpoints = new int[ROOM_SIZE];
+        int tick = 0;
+        int room = 0;
+        int alive = 0;
+        int generated = 0;
+        boolean reconfigured = false;
+
+        while (generated < hits)
+        {
+            if (alive == 0)
+            {
+                room++;
+                alive = ROOM_SIZE;
+                for (int i = 0; i < ROOM_SIZE; i++)
+                {
+                    hitpoints[i] = NPC_HITPOINTS;
+                }
+            }
+
+            log.tick(++tick);
+
+            if (!reconfigured && generated >= hits / 2)
+            {
+                log.config(laterSettings);
+                reconfigured = true;
+            }
+
+            if (random.nextInt(20_000) == 0)
+            {
+                log.death();
+                continue;
+            }
+
+            int slot = random.nextInt(ROOM_SIZE);
+            while (hitpoints[slot] <= 0)
+            {
+                slot = (slot + 1) % ROOM_SIZE;
+            }
+
+            int npcIndex = (room % 64) * ROOM_SIZE + slot;
+            int npcId = 8000 + slot;
+            int splats = random.nextInt(3) == 0 ? 3 : 1;
+            for (int s = 0; s < splats && hitpoints[slot] > 0; s++)
+            {
+                int amount = random.nextInt(5) == 0 ? 0 : 1 + random.nextInt(70);
+                log.hitsplat(npcIndex, npcId, amount == 0 ? HitsplatID.BLOCK_ME : HitsplatID.DAMAGE_ME, amount);
+                hitpoints[slot] -= amount;
+                generated++;
+            }
+
+            if (hitpoints[slot] <= 0)
+            {
+                log.kill(npcIndex);
+                log.despawn(npcIndex);
+                alive--;
+            }
+        }
+
+        return log;
+    }
+
+    private static void fail(String message)
+    {
+        System.err.println(message);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,105 @@
+package com.hitcounter;
+
+import net.runelite.api.HitsplatID;
+import net.runelite.api.NPC;
+import net.runelite.api.events.HitsplatApplied;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hitsplat ingestion on the client thread: a multi-target room where some
+ * targets are on the ignore list and some hitsplats are zeros.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class HitsplatBenchmark
+{
+    private static final int TARGETS = 32;
+    private static final int EVENTS = 4096;
+    private static final int HITS_PER_TICK = 8;
+
+    @Param({"0", "10", "100"})
+    public int ignoredNames;
+
+    @Param({"NONE", "HIGHLIGHT", "FLASH"})
+    public String triggerEffect;
+
+    @Param({"EXACT", "EVERY"})
+    public String triggerMode;
+
+    private BenchmarkFixture fixture;
+    private HitsplatApplied[] events;
+    private int next;
+
+    @Setup
+    public void setUp()
+    {
+        fixture = new BenchmarkFixture();
+        fixture.set("excludedNpcNames", ignoreList(ignoredNames));
+        fixture.set("triggerEffectMode", HitCounterConfig.TriggerEffectMode.valueOf(triggerEffect));
+        fixture.set("triggerMode", HitCounterConfig.AudioTriggerMode.valueOf(triggerMode));
+        fixture.set("triggerHitCount", 5);
+        fixture.set("onlyCountSuccessfulHits", true);
+
+        NPC[] targets = new NPC[TARGETS];
+        for (int i = 0; i < TARGETS; i++)
+        {
+            // Every fourth target shares a name with the ignore list when it has entries
+            String name = i % 4 == 0 && ignoredNames > 0 ? "Ignored npc " + (i % ignoredNames) : "Target npc " + i;
+            targets[i] = BenchmarkFixture.npc(1000 + i, i, name);
+        }
+
+        Random random = new Random(42);
+        events = new HitsplatApplied[EVENTS];
+        for (int i = 0; i < EVENTS; i++)
+        {
+            int amount = random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(60);
+            int type = amount == 0 ? HitsplatID.BLOCK_ME : HitsplatID.DAMAGE_ME;
+            events[i] = BenchmarkFixture.hitsplat(targets[random.nextInt(TARGETS)], type, amount);
+        }
+    }
+
+    @Benchmark
+    public void onHitsplatApplied(Blackhole blackhole)
+    {
+        int i = next++;
+        if (i % HITS_PER_TICK == 0)
+        {
+            fixture.gameTick();
+        }
+
+        fixture.plugin.onHitsplatApplied(events[i & (EVENTS - 1)]);
+        blackhole.consume(fixture.plugin.getAttackCount());
+    }
+
+    static String ignoreList(int size)
+    {
+        StringBuilder names = new StringBuilder();
+        for (int i = 0; i < size; i++)
+        {
+            if (i > 0)
+            {
+                names.append(", ");
+            }
+            names.append("Ignored NPC ").append(i);
+        }
+        return names.toString();
+    }
+}
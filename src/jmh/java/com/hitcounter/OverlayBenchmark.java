@@ -0,0 +1,86 @@
+package com.hitcounter;
+
+import net.runelite.api.HitsplatID;
+import net.runelite.api.NPC;
+import net.runelite.api.events.HitsplatApplied;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overlay rendering into a headless canvas-sized image.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class OverlayBenchmark
+{
+    /**
+     * Frames rendered per counted hit in the "counting" benchmark, roughly 144 FPS with a hit every tick.
+     */
+    private static final int FRAMES_PER_HIT = 86;
+
+    @Param({"false", "true"})
+    public boolean glyphCounter;
+
+    private BenchmarkFixture fixture;
+    private BufferedImage image;
+    private Graphics2D graphics;
+    private HitsplatApplied hit;
+    private int frame;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        fixture = new BenchmarkFixture();
+        fixture.set("glyphCounter", glyphCounter);
+
+        image = new BufferedImage(BenchmarkFixture.CANVAS_WIDTH, BenchmarkFixture.CANVAS_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        graphics = image.createGraphics();
+
+        NPC npc = BenchmarkFixture.npc(1000, 1, "Target npc");
+        hit = BenchmarkFixture.hitsplat(npc, HitsplatID.DAMAGE_ME, 12);
+        fixture.plugin.onHitsplatApplied(hit);
+        fixture.gameTick();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public Dimension overlaySteady()
+    {
+        return fixture.overlay.render(graphics);
+    }
+
+    @Benchmark
+    public Dimension overlayCounting()
+    {
+        if (++frame % FRAMES_PER_HIT == 0)
+        {
+            fixture.plugin.onHitsplatApplied(hit);
+            fixture.gameTick();
+        }
+        return fixture.overlay.render(graphics);
+    }
+}
@@ -0,0 +1,46 @@
+package com.hitcounter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebuilding the settings snapshot, which is where the hit filter is compiled.
+ * This runs once per config change, not per hitsplat.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SettingsBenchmark
+{
+    @Param({"0", "10", "100"})
+    public int ignoredNames;
+
+    private BenchmarkFixture fixture;
+
+    @Setup
+    public void setUp()
+    {
+        fixture = new BenchmarkFixture();
+        fixture.set("excludedNpcNames", HitsplatBenchmark.ignoreList(ignoredNames));
+    }
+
+    @Benchmark
+    public HitCounterSettings buildSettings()
+    {
+        return HitCounterSettings.from(fixture.config);
+    }
+}
@@ -0,0 +1,157 @@
+package com.hitcounter;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * The live counters, saved on shutdown and logout and restored on the next start-up,
+ * so hopping worlds, relogging or toggling the plugin mid-kill keeps the count.
+ * <p>
+ * Holds the hitsplat and attack counts across all targets and on the current target, the
+ * target's NPC index and id, and how many ticks before the save the last hit landed. Trigger
+ * progress follows from the counts, so it is not stored separately. Snapshots older than
+ * {@link #MAX_AGE_MILLIS} are ignored.
+ * <p>
+ * File layout: magic, version, save time as a long, then the counts, target and ticks
+ * since the last hit as ints, all big-endian.
+ */
+@Slf4j
+final class CounterSnapshot
+{
+    static final long MAX_AGE_MILLIS = 30 * 60 * 1000;
+
+    private static final int MAGIC = 0x48435354; // "HCST"
+    private static final int VERSION = 1;
+    private static final int FILE_SIZE = 44;
+
+    private static final long MILLIS_PER_TICK = 600;
+
+    private final long savedAt;
+    private final int aggregateHits;
+    private final int aggregateAttacks;
+    private final int targetIndex;
+    private final int targetNpcId;
+    private final int targetHits;
+    private final int targetAttacks;
+
+    /**
+     * Ticks between the last hit and the save, or {@link HitCounterEngine#NO_TICK}.
+     */
+    private final int ticksSinceLastHit;
+
+    private CounterSnapshot(long savedAt, int aggregateHits, int aggregateAttacks, int targetIndex, int targetNpcId,
+                            int targetHits, int targetAttacks, int ticksSinceLastHit)
+    {
+        this.savedAt = savedAt;
+        this.aggregateHits = aggregateHits;
+        this.aggregateAttacks = aggregateAttacks;
+        this.targetIndex = targetIndex;
+        this.targetNpcId = targetNpcId;
+        this.targetHits = targetHits;
+        this.targetAttacks = targetAttacks;
+        this.ticksSinceLastHit = ticksSinceLastHit;
+    }
+
+    /**
+     * Copies the engine's counters. Hits batched this tick are left out rather than flushed,
+     * so saving never fires a trigger.
+     *
+     * @param now wall clock time of the save, in milliseconds
+     */
+    static CounterSnapshot capture(HitCounterEngine engine, long now)
+    {
+        int target = engine.getTargetIndex();
+        boolean hasTarget = target != HitCounterEngine.NO_TARGET;
+        int lastAttackTick = engine.getLastAttackTick();
+        return new CounterSnapshot(now, engine.getAggregateHits(), engine.getAggregateAttacks(),
+                target, hasTarget ? engine.getTargetNpcId(target) : HitCounterEngine.NO_TARGET,
+                hasTarget ? engine.getTargetCount(target, false) : 0, hasTarget ? engine.getTargetCount(target, true) : 0,
+                lastAttackTick == HitCounterEngine.NO_TICK ? HitCounterEngine.NO_TICK : engine.getTick() - lastAttackTick);
+    }
+
+    /**
+     * Puts the counters back into an engine that has not counted anything since it was cleared.
+     * The last hit is placed as many ticks back as had passed at the save, plus the time since.
+     *
+     * @param now wall clock time of the restore, in milliseconds
+     */
+    void restore(HitCounterEngine engine, long now)
+    {
+        int lastAttackTick = HitCounterEngine.NO_TICK;
+        if (ticksSinceLastHit != HitCounterEngine.NO_TICK)
+        {
+            long away = Math.max(0, now - savedAt) / MILLIS_PER_TICK;
+            lastAttackTick = engine.getTick() - ticksSinceLastHit - (int) away;
+        }
+
+        engine.restore(aggregateHits, aggregateAttacks, targetIndex, targetNpcId, targetHits, targetAttacks, lastAttackTick);
+    }
+
+    boolean isExpired(long now)
+    {
+        return now - savedAt > MAX_AGE_MILLIS;
+    }
+
+    void write(File file)
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(FILE_SIZE);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(savedAt)
+                .putInt(aggregateHits).putInt(aggregateAttacks)
+                .putInt(targetIndex).putInt(targetNpcId).putInt(targetHits).putInt(targetAttacks)
+                .putInt(ticksSinceLastHit);
+
+        File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs())
+        {
+            log.warn("Unable to create directory {}", directory);
+            return;
+        }
+
+        File temp = new File(directory, file.getName() + ".tmp");
+        try
+        {
+            Files.write(temp.toPath(), buffer.array());
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (IOException ex)
+        {
+            log.warn("Unable to save hit counter state to {}", file, ex);
+        }
+    }
+
+    /**
+     * @return the saved snapshot, or null if there is none or it cannot be read
+     */
+    static CounterSnapshot read(File file)
+    {
+        if (!file.isFile())
+        {
+            return null;
+        }
+
+        ByteBuffer buffer;
+        try
+        {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        }
+        catch (IOException ex)
+        {
+            log.warn("Unable to read hit counter state from {}", file, ex);
+            return null;
+        }
+
+        if (buffer.capacity() != FILE_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+        {
+            log.warn("Ignoring unrecognised hit counter state file {}", file);
+            return null;
+        }
+
+        return new CounterSnapshot(buffer.getLong(), buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(),
+                buffer.getInt(), buffer.getInt(), buffer.getInt());
+    }
+}
@@ -0,0 +1,34 @@
+package com.hitcounter;
+
+/**
+ * Cache of the strings used to display counter values,
+ * so rendering a count does not build a new String every frame.
+ */
+final class CounterText
+{
+    private static final int CACHE_SIZE = 1024;
+
+    private static final String[] CACHE = new String[CACHE_SIZE];
+
+    static
+    {
+        for (int i = 0; i < CACHE_SIZE; i++)
+        {
+            CACHE[i] = String.valueOf(i).intern();
+        }
+    }
+
+    private CounterText()
+    {
+    }
+
+    static String of(int value)
+    {
+        if (value >= 0 && value < CACHE_SIZE)
+        {
+            return CACHE[value];
+        }
+
+        return String.valueOf(value);
+    }
+}
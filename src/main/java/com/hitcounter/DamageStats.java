@@ -0,0 +1,339 @@
+package com.hitcounter;
+
+import java.util.Arrays;
+
+/**
+ * Running damage statistics per target and for the whole session.
+ * <p>
+ * Each target gets a slot in flat primitive arrays: total, hit and zero counts,
+ * max, a Welford mean and variance, and a fixed-bucket histogram for percentiles.
+ * Recording a hitsplat is O(1) and does not allocate once the arrays have grown
+ * to the number of live targets. Slots are recycled when targets are evicted.
+ * Not thread safe; only touched from the client thread.
+ */
+public final class DamageStats
+{
+    /**
+     * Slot holding the statistics for every recorded hitsplat this session.
+     */
+    public static final int SESSION = 0;
+
+    public static final int NO_SLOT = -1;
+
+    /**
+     * Target of the session slot and of free slots.
+     */
+    public static final int NO_TARGET = -1;
+
+    /**
+     * Exact buckets below 20, then 5 wide below 100, 25 wide below 500, then one overflow bucket.
+     */
+    static final int BUCKETS = 20 + 16 + 16 + 1;
+
+    private final IntIntMap slots = new IntIntMap(64);
+
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int slotCount = 1;
+
+    private int[] targets;
+    private long[] total;
+    private int[] hits;
+    private int[] zeros;
+    private int[] max;
+    private double[] mean;
+    private double[] m2;
+    private int[] histogram;
+
+    /**
+     * Bumped on every change, so readers can cache what they derive from these numbers.
+     */
+    private int version;
+
+    public DamageStats()
+    {
+        allocate(16);
+    }
+
+    /**
+     * Records one hitsplat against the target and the session.
+     */
+    public void record(int npcIndex, int amount)
+    {
+        update(slotFor(npcIndex), amount);
+        update(SESSION, amount);
+        version++;
+    }
+
+    /**
+     * Drops a target's statistics. The session totals are kept.
+     */
+    public void evict(int npcIndex)
+    {
+        // Slots are stored off by one so that a missing key reads as NO_SLOT
+        int slot = slots.remove(npcIndex) - 1;
+        if (slot == NO_SLOT)
+        {
+            return;
+        }
+
+        clearSlot(slot);
+        targets[slot] = NO_TARGET;
+        if (freeCount == freeSlots.length)
+        {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        version++;
+    }
+
+    public void clear()
+    {
+        slots.clear();
+        freeCount = 0;
+        for (int slot = 0; slot < slotCount; slot++)
+        {
+            clearSlot(slot);
+            targets[slot] = NO_TARGET;
+        }
+        slotCount = 1;
+        version++;
+    }
+
+    /**
+     * Slot of the target's statistics, or {@link #NO_SLOT} if nothing was recorded for it.
+     */
+    public int slotOf(int npcIndex)
+    {
+        return slots.get(npcIndex) - 1;
+    }
+
+    public int getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Upper bound of the slots in use, for iterating over them with {@link #getTarget}.
+     */
+    public int getSlotCount()
+    {
+        return slotCount;
+    }
+
+    /**
+     * NPC index the slot belongs to, or {@link #NO_TARGET} for the session slot and free slots.
+     */
+    public int getTarget(int slot)
+    {
+        return targets[slot];
+    }
+
+    public int getHits(int slot)
+    {
+        return hits[slot];
+    }
+
+    public long getTotal(int slot)
+    {
+        return total[slot];
+    }
+
+    public int getMax(int slot)
+    {
+        return max[slot];
+    }
+
+    public double getMean(int slot)
+    {
+        return mean[slot];
+    }
+
+    public double getVariance(int slot)
+    {
+        return hits[slot] < 2 ? 0 : m2[slot] / (hits[slot] - 1);
+    }
+
+    public double getStandardDeviation(int slot)
+    {
+        return Math.sqrt(getVariance(slot));
+    }
+
+    public double getZeroRatio(int slot)
+    {
+        return hits[slot] == 0 ? 0 : (double) zeros[slot] / hits[slot];
+    }
+
+    /**
+     * Approximate damage percentile from the histogram, for a fraction between 0 and 1.
+     * Exact for hits below 20; otherwise the upper bound of the bucket, capped at the max.
+     */
+    public int getPercentile(int slot, double fraction)
+    {
+        int count = hits[slot];
+        if (count == 0)
+        {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        int base = slot * BUCKETS;
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+        {
+            seen += histogram[base + bucket];
+            if (seen >= rank)
+            {
+                return Math.min(bucketUpperBound(bucket), max[slot]);
+            }
+        }
+        return max[slot];
+    }
+
+    /**
+     * Appends a one-line summary of the slot, for tooltips.
+     */
+    public void appendSummary(StringBuilder sb, int slot)
+    {
+        int count = hits[slot];
+        sb.append(count).append(" hits, ").append(total[slot]).append(" dmg");
+        if (count == 0)
+        {
+            return;
+        }
+
+        sb.append(" (avg ").append(format1(mean[slot]))
+                .append(", sd ").append(format1(getStandardDeviation(slot)))
+                .append(", max ").append(max[slot])
+                .append(", zeros ").append(Math.round(getZeroRatio(slot) * 100)).append("%")
+                .append(", p50/p90/p99 ").append(getPercentile(slot, 0.5))
+                .append('/').append(getPercentile(slot, 0.9))
+                .append('/').append(getPercentile(slot, 0.99))
+                .append(')');
+    }
+
+    static int bucketOf(int amount)
+    {
+        if (amount < 20)
+        {
+            return Math.max(0, amount);
+        }
+        if (amount < 100)
+        {
+            return 20 + (amount - 20) / 5;
+        }
+        if (amount < 500)
+        {
+            return 36 + (amount - 100) / 25;
+        }
+        return BUCKETS - 1;
+    }
+
+    private static int bucketUpperBound(int bucket)
+    {
+        if (bucket < 20)
+        {
+            return bucket;
+        }
+        if (bucket < 36)
+        {
+            return 20 + (bucket - 20) * 5 + 4;
+        }
+        if (bucket < 52)
+        {
+            return 100 + (bucket - 36) * 25 + 24;
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    private int slotFor(int npcIndex)
+    {
+        int slot = slots.get(npcIndex) - 1;
+        if (slot != NO_SLOT)
+        {
+            return slot;
+        }
+
+        if (freeCount > 0)
+        {
+            slot = freeSlots[--freeCount];
+        }
+        else
+        {
+            if (slotCount == hits.length)
+            {
+                allocate(slotCount * 2);
+            }
+            slot = slotCount++;
+        }
+
+        slots.put(npcIndex, slot + 1);
+        targets[slot] = npcIndex;
+        return slot;
+    }
+
+    private void update(int slot, int amount)
+    {
+        int n = ++hits[slot];
+        total[slot] += amount;
+        if (amount <= 0)
+        {
+            zeros[slot]++;
+        }
+        if (amount > max[slot])
+        {
+            max[slot] = amount;
+        }
+
+        double delta = amount - mean[slot];
+        mean[slot] += delta / n;
+        m2[slot] += delta * (amount - mean[slot]);
+
+        histogram[slot * BUCKETS + bucketOf(amount)]++;
+    }
+
+    private void clearSlot(int slot)
+    {
+        total[slot] = 0;
+        hits[slot] = 0;
+        zeros[slot] = 0;
+        max[slot] = 0;
+        mean[slot] = 0;
+        m2[slot] = 0;
+        Arrays.fill(histogram, slot * BUCKETS, (slot + 1) * BUCKETS, 0);
+    }
+
+    private void allocate(int capacity)
+    {
+        if (total == null)
+        {
+            targets = new int[capacity];
+            Arrays.fill(targets, NO_TARGET);
+            total = new long[capacity];
+            hits = new int[capacity];
+            zeros = new int[capacity];
+            max = new int[capacity];
+            mean = new double[capacity];
+            m2 = new double[capacity];
+            histogram = new int[capacity * BUCKETS];
+            return;
+        }
+
+        int previous = targets.length;
+        targets = Arrays.copyOf(targets, capacity);
+        Arrays.fill(targets, previous, capacity, NO_TARGET);
+        total = Arrays.copyOf(total, capacity);
+        hits = Arrays.copyOf(hits, capacity);
+        zeros = Arrays.copyOf(zeros, capacity);
+        max = Arrays.copyOf(max, capacity);
+        mean = Arrays.copyOf(mean, capacity);
+        m2 = Arrays.copyOf(m2, capacity);
+        histogram = Arrays.copyOf(histogram, capacity * BUCKETS);
+    }
+
+    private static String format1(double value)
+    {
+        long tenths = Math.round(value * 10);
+        return (tenths / 10) + "." + Math.abs(tenths % 10);
+    }
+}
@@ -0,0 +1,149 @@
+package com.hitcounter;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * The digits 0-9 pre-rendered in one font and a few colours, so a count can be put together
+ * from image blits instead of laying out and rasterizing text.
+ * <p>
+ * Glyphs are drawn the way overlay text is, with a black shadow one pixel down and right.
+ * Each digit of each colour is its own small image. Immutable once built.
+ */
+final class DigitAtlas
+{
+    private static final char[] DIGITS = "0123456789".toCharArray();
+
+    private static final int[] POWERS = {1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000, 1000000000};
+
+    private final Font font;
+    private final Object antialiasing;
+    private final Color[] colors;
+
+    /**
+     * Glyph images by colour row and digit, each one pixel wider and taller than the digit for the shadow.
+     */
+    private final BufferedImage[][] glyphs;
+
+    private final int[] digitWidth = new int[DIGITS.length];
+    private final int ascent;
+
+    DigitAtlas(Font font, Object antialiasing, Color[] colors)
+    {
+        this.font = font;
+        this.antialiasing = antialiasing;
+        this.colors = colors.clone();
+
+        BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D measure = scratch.createGraphics();
+        FontMetrics metrics = measure.getFontMetrics(font);
+        measure.dispose();
+
+        for (int i = 0; i < DIGITS.length; i++)
+        {
+            digitWidth[i] = metrics.charWidth(DIGITS[i]);
+        }
+        ascent = metrics.getAscent();
+        int height = metrics.getAscent() + metrics.getDescent() + 1;
+
+        glyphs = new BufferedImage[this.colors.length][DIGITS.length];
+        for (int row = 0; row < this.colors.length; row++)
+        {
+            for (int i = 0; i < DIGITS.length; i++)
+            {
+                BufferedImage glyph = new BufferedImage(digitWidth[i] + 1, height, BufferedImage.TYPE_INT_ARGB_PRE);
+                Graphics2D graphics = glyph.createGraphics();
+                graphics.setFont(font);
+                graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, antialiasing);
+                graphics.setColor(Color.BLACK);
+                graphics.drawChars(DIGITS, i, 1, 1, ascent + 1);
+                graphics.setColor(this.colors[row]);
+                graphics.drawChars(DIGITS, i, 1, 0, ascent);
+                graphics.dispose();
+                glyphs[row][i] = glyph;
+            }
+        }
+    }
+
+    /**
+     * Whether this atlas was built for the font, text antialiasing and colours.
+     */
+    boolean matches(Font font, Object antialiasing, Color[] colors)
+    {
+        if (!this.font.equals(font) || !this.antialiasing.equals(antialiasing) || this.colors.length != colors.length)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < colors.length; i++)
+        {
+            if (!this.colors[i].equals(colors[i]))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Row of the colour, or -1 if it is not in the atlas.
+     */
+    int rowOf(Color color)
+    {
+        for (int row = 0; row < colors.length; row++)
+        {
+            if (colors[row].equals(color))
+            {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Width of a non-negative value, as {@link FontMetrics#stringWidth} would measure it.
+     */
+    int width(int value)
+    {
+        int width = 0;
+        do
+        {
+            width += digitWidth[value % 10];
+            value /= 10;
+        }
+        while (value > 0);
+        return width;
+    }
+
+    int getAscent()
+    {
+        return ascent;
+    }
+
+    /**
+     * Renders a non-negative value into one image, with the baseline at {@link #getAscent()}.
+     */
+    BufferedImage render(int value, int row)
+    {
+        int digitCount = 1;
+        for (int rest = value / 10; rest > 0; rest /= 10)
+        {
+            digitCount++;
+        }
+
+        BufferedImage[] digits = glyphs[row];
+        BufferedImage image = new BufferedImage(width(value) + 1, digits[0].getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D graphics = image.createGraphics();
+
+        // Left to right, so each digit is drawn over the shadow of the one before, as in drawn text
+        int x = 0;
+        for (int i = digitCount - 1; i >= 0; i--)
+        {
+            int digit = value / POWERS[i] % 10;
+            graphics.drawImage(digits[digit], x, 0, null);
+            x += digitWidth[digit];
+        }
+        graphics.dispose();
+        return image;
+    }
+}
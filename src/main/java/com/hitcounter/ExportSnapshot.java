@@ -0,0 +1,405 @@
+package com.hitcounter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Immutable copy of the counters, per-target damage stats, kills with their hits and the hit breakdown, taken on the
+ * client thread and written out as CSV or JSON on a background thread. JSON is one document; CSV is one file per
+ * {@link CsvTable}, since the tables have different columns.
+ * The writers stream row by row, so nothing but the snapshot itself is held in memory.
+ */
+final class ExportSnapshot
+{
+    enum Format
+    {
+        CSV("csv"),
+        JSON("json");
+
+        private final String extension;
+
+        Format(String extension)
+        {
+            this.extension = extension;
+        }
+
+        String getExtension()
+        {
+            return extension;
+        }
+    }
+
+    enum CsvTable
+    {
+        COUNTERS("counters"),
+        STATS("stats"),
+        KILLS("kills"),
+        KILL_HITS("kill-hits"),
+        BREAKDOWN("breakdown");
+
+        private final String suffix;
+
+        CsvTable(String suffix)
+        {
+            this.suffix = suffix;
+        }
+
+        /**
+         * Appended to the export name to make the table's file name.
+         */
+        String getSuffix()
+        {
+            return suffix;
+        }
+    }
+
+    private static final String[] STATS_COLUMNS = {
+            "hits", "damage", "mean", "stddev", "max", "zero_ratio", "p50", "p90", "p99"
+    };
+
+    private static final String[] KILL_COLUMNS = {
+            "npc_id", "name", "first_tick", "last_tick", "hits", "damage", "max"
+    };
+
+    private static final String[] KILL_HIT_COLUMNS = {
+            "kill", "tick_offset", "amount", "hitsplat_type"
+    };
+
+    private static final String[] BREAKDOWN_COLUMNS = {
+            "npc_id", "weapon_id", "attack_style", "hitsplat_type", "hits", "damage"
+    };
+
+    private final int tick;
+    private final int aggregateHits;
+    private final int aggregateAttacks;
+
+    /**
+     * Session stats, then one row per target: NPC index, NPC id and first tick, then {@link #STATS_COLUMNS}.
+     */
+    private final double[] session;
+    private final int[] targetInfo;
+    private final double[][] targetStats;
+
+    private final int[] killNpcIds;
+    private final String[] killNames;
+    private final int[] killFirstTicks;
+    private final int[] killLastTicks;
+    private final int[] killHits;
+    private final long[] killDamage;
+    private final int[] killMaxHits;
+
+    /**
+     * Every kill's hits back to back; kill i's start at {@code killHitStarts[i]} and end where kill i + 1's start.
+     */
+    private final int[] killHitStarts;
+    private final int[] killHitTicks;
+    private final int[] killHitAmounts;
+    private final int[] killHitTypes;
+
+    /**
+     * Hit breakdown rows: NPC id, weapon id, attack style and hitsplat type, then hits and damage.
+     */
+    private final int[] breakdownKeys;
+    private final int[] breakdownHits;
+    private final long[] breakdownDamage;
+
+    private ExportSnapshot(HitCounterEngine engine)
+    {
+        tick = engine.getTick();
+        aggregateHits = engine.getAggregateHits();
+        aggregateAttacks = engine.getAggregateAttacks();
+
+        DamageStats stats = engine.getDamageStats();
+        session = statsRow(stats, DamageStats.SESSION);
+
+        int targets = 0;
+        for (int slot = 0; slot < stats.getSlotCount(); slot++)
+        {
+            if (stats.getTarget(slot) != DamageStats.NO_TARGET)
+            {
+                targets++;
+            }
+        }
+
+        targetInfo = new int[targets * 3];
+        targetStats = new double[targets][];
+        int row = 0;
+        for (int slot = 0; slot < stats.getSlotCount(); slot++)
+        {
+            int npcIndex = stats.getTarget(slot);
+            if (npcIndex == DamageStats.NO_TARGET)
+            {
+                continue;
+            }
+
+            targetInfo[row * 3] = npcIndex;
+            targetInfo[row * 3 + 1] = engine.getTargetNpcId(npcIndex);
+            targetInfo[row * 3 + 2] = engine.getTargetFirstTick(npcIndex);
+            targetStats[row++] = statsRow(stats, slot);
+        }
+
+        KillHistory kills = engine.getKills();
+        int size = kills.size();
+        killNpcIds = new int[size];
+        killNames = new String[size];
+        killFirstTicks = new int[size];
+        killLastTicks = new int[size];
+        killHits = new int[size];
+        killDamage = new long[size];
+        killMaxHits = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            killNpcIds[i] = kills.getNpcId(i);
+            killNames[i] = kills.getName(i);
+            killFirstTicks[i] = kills.getFirstTick(i);
+            killLastTicks[i] = kills.getLastTick(i);
+            killHits[i] = kills.getHits(i);
+            killDamage[i] = kills.getDamage(i);
+            killMaxHits[i] = kills.getMaxHit(i);
+        }
+
+        killHitStarts = new int[size + 1];
+        for (int i = 0; i < size; i++)
+        {
+            killHitStarts[i + 1] = killHitStarts[i] + kills.getSequenceLength(i);
+        }
+        killHitTicks = new int[killHitStarts[size]];
+        killHitAmounts = new int[killHitStarts[size]];
+        killHitTypes = new int[killHitStarts[size]];
+        for (int i = 0; i < size; i++)
+        {
+            for (int j = 0, hit = killHitStarts[i]; hit < killHitStarts[i + 1]; j++, hit++)
+            {
+                killHitTicks[hit] = kills.getHitTickOffset(i, j);
+                killHitAmounts[hit] = kills.getHitAmount(i, j);
+                killHitTypes[hit] = kills.getHitsplatType(i, j);
+            }
+        }
+
+        HitCube cube = engine.getCube();
+        breakdownKeys = new int[cube.size() * 4];
+        breakdownHits = new int[cube.size()];
+        breakdownDamage = new long[cube.size()];
+        row = 0;
+        for (int slot = 0; slot < cube.getSlotCount(); slot++)
+        {
+            if (!cube.isUsed(slot))
+            {
+                continue;
+            }
+
+            breakdownKeys[row * 4] = cube.getNpcId(slot);
+            breakdownKeys[row * 4 + 1] = cube.getWeaponId(slot);
+            breakdownKeys[row * 4 + 2] = cube.getAttackStyle(slot);
+            breakdownKeys[row * 4 + 3] = cube.getHitsplatType(slot);
+            breakdownHits[row] = cube.getHits(slot);
+            breakdownDamage[row++] = cube.getDamage(slot);
+        }
+    }
+
+    /**
+     * Copies the engine state. Client thread only.
+     */
+    static ExportSnapshot capture(HitCounterEngine engine)
+    {
+        return new ExportSnapshot(engine);
+    }
+
+    void writeCsv(CsvTable table, Writer out) throws IOException
+    {
+        switch (table)
+        {
+            case COUNTERS:
+                out.write("tick,aggregate_hits,aggregate_attacks\n");
+                out.write(tick + "," + aggregateHits + "," + aggregateAttacks + "\n");
+                break;
+
+            case STATS:
+                out.write("scope,npc_index,npc_id,first_tick");
+                for (String column : STATS_COLUMNS)
+                {
+                    out.write(',');
+                    out.write(column);
+                }
+                out.write('\n');
+                writeCsvStats(out, "session", -1, 0, 0, session);
+                for (int row = 0; row < targetStats.length; row++)
+                {
+                    writeCsvStats(out, "target", targetInfo[row * 3], targetInfo[row * 3 + 1], targetInfo[row * 3 + 2],
+                            targetStats[row]);
+                }
+                break;
+
+            case KILLS:
+                out.write("kill," + String.join(",", KILL_COLUMNS));
+                out.write('\n');
+                for (int i = 0; i < killNpcIds.length; i++)
+                {
+                    out.write(i + "," + killNpcIds[i] + "," + csv(killNames[i]) + "," + killFirstTicks[i] + "," +
+                            killLastTicks[i] + "," + killHits[i] + "," + killDamage[i] + "," + killMaxHits[i] + "\n");
+                }
+                break;
+
+            case KILL_HITS:
+                out.write(String.join(",", KILL_HIT_COLUMNS));
+                out.write('\n');
+                for (int i = 0; i < killNpcIds.length; i++)
+                {
+                    for (int hit = killHitStarts[i]; hit < killHitStarts[i + 1]; hit++)
+                    {
+                        out.write(i + "," + killHitTicks[hit] + "," + killHitAmounts[hit] + "," + killHitTypes[hit] + "\n");
+                    }
+                }
+                break;
+
+            case BREAKDOWN:
+                out.write(String.join(",", BREAKDOWN_COLUMNS));
+                out.write('\n');
+                for (int i = 0; i < breakdownHits.length; i++)
+                {
+                    out.write(breakdownKeys[i * 4] + "," + breakdownKeys[i * 4 + 1] + "," + breakdownKeys[i * 4 + 2] + "," +
+                            breakdownKeys[i * 4 + 3] + "," + breakdownHits[i] + "," + breakdownDamage[i] + "\n");
+                }
+                break;
+        }
+    }
+
+    private static void writeCsvStats(Writer out, String scope, int npcIndex, int npcId, int firstTick, double[] row)
+            throws IOException
+    {
+        out.write(scope + "," + npcIndex + "," + npcId + "," + firstTick);
+        for (double value : row)
+        {
+            out.write(',');
+            out.write(number(value));
+        }
+        out.write('\n');
+    }
+
+    void writeJson(Writer out) throws IOException
+    {
+        out.write("{\n  \"tick\": " + tick + ",\n  \"aggregateHits\": " + aggregateHits +
+                ",\n  \"aggregateAttacks\": " + aggregateAttacks + ",\n  \"session\": ");
+        writeJsonStats(out, session);
+
+        out.write(",\n  \"targets\": [");
+        for (int row = 0; row < targetStats.length; row++)
+        {
+            out.write(row == 0 ? "\n    {" : ",\n    {");
+            out.write("\"npcIndex\": " + targetInfo[row * 3] + ", \"npcId\": " + targetInfo[row * 3 + 1] +
+                    ", \"firstTick\": " + targetInfo[row * 3 + 2] + ", \"stats\": ");
+            writeJsonStats(out, targetStats[row]);
+            out.write('}');
+        }
+        out.write(targetStats.length == 0 ? "]" : "\n  ]");
+
+        out.write(",\n  \"kills\": [");
+        for (int i = 0; i < killNpcIds.length; i++)
+        {
+            out.write(i == 0 ? "\n    " : ",\n    ");
+            out.write("{\"npcId\": " + killNpcIds[i] + ", \"name\": " + json(killNames[i]) +
+                    ", \"firstTick\": " + killFirstTicks[i] + ", \"lastTick\": " + killLastTicks[i] +
+                    ", \"hits\": " + killHits[i] + ", \"damage\": " + killDamage[i] + ", \"max\": " + killMaxHits[i] +
+                    ", \"sequence\": [");
+            for (int hit = killHitStarts[i]; hit < killHitStarts[i + 1]; hit++)
+            {
+                out.write(hit == killHitStarts[i] ? "[" : ", [");
+                out.write(killHitTicks[hit] + ", " + killHitAmounts[hit] + ", " + killHitTypes[hit] + "]");
+            }
+            out.write("]}");
+        }
+        out.write(killNpcIds.length == 0 ? "]" : "\n  ]");
+
+        out.write(",\n  \"breakdown\": [");
+        for (int i = 0; i < breakdownHits.length; i++)
+        {
+            out.write(i == 0 ? "\n    " : ",\n    ");
+            out.write("{\"npcId\": " + breakdownKeys[i * 4] + ", \"weaponId\": " + breakdownKeys[i * 4 + 1] +
+                    ", \"attackStyle\": " + breakdownKeys[i * 4 + 2] + ", \"hitsplatType\": " + breakdownKeys[i * 4 + 3] +
+                    ", \"hits\": " + breakdownHits[i] + ", \"damage\": " + breakdownDamage[i] + "}");
+        }
+        out.write(breakdownHits.length == 0 ? "]\n}\n" : "\n  ]\n}\n");
+    }
+
+    private static void writeJsonStats(Writer out, double[] row) throws IOException
+    {
+        out.write('{');
+        for (int i = 0; i < STATS_COLUMNS.length; i++)
+        {
+            if (i > 0)
+            {
+                out.write(", ");
+            }
+            out.write('"');
+            out.write(STATS_COLUMNS[i]);
+            out.write("\": ");
+            out.write(number(row[i]));
+        }
+        out.write('}');
+    }
+
+    private static double[] statsRow(DamageStats stats, int slot)
+    {
+        return new double[]{
+                stats.getHits(slot),
+                stats.getTotal(slot),
+                stats.getMean(slot),
+                stats.getStandardDeviation(slot),
+                stats.getMax(slot),
+                stats.getZeroRatio(slot),
+                stats.getPercentile(slot, 0.5),
+                stats.getPercentile(slot, 0.9),
+                stats.getPercentile(slot, 0.99)
+        };
+    }
+
+    private static String number(double value)
+    {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15)
+        {
+            return Long.toString((long) value);
+        }
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static String csv(String value)
+    {
+        if (value == null)
+        {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0)
+        {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String json(String value)
+    {
+        if (value == null)
+        {
+            return "null";
+        }
+
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\')
+            {
+                sb.append('\\').append(c);
+            }
+            else if (c < 0x20)
+            {
+                sb.append(String.format("\\u%04x", (int) c));
+            }
+            else
+            {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
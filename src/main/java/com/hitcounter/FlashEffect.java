@@ -0,0 +1,227 @@
+package com.hitcounter;
+
+import java.awt.*;
+
+/**
+ * One flash style's slot in {@link HitCounterFlash}.
+ * Colours are precomputed when the effect starts so rendering only indexes
+ * into a palette. A trigger with the same colour while the effect is running
+ * extends it; a different colour is queued behind it.
+ */
+final class FlashEffect
+{
+    /**
+     * Intensity steps in the palette.
+     */
+    static final int STEPS = 16;
+
+    /**
+     * Nested rectangles used for the border glow.
+     */
+    static final int BORDER_LAYERS = 4;
+
+    private static final int FILL_ALPHA = 80;
+
+    private static final int BORDER_ALPHA = 160;
+
+    private static final int PULSE_PERIOD_CYCLES = 40;
+
+    private static final int QUEUE_SIZE = 4;
+
+    private final HitCounterConfig.FlashStyle style;
+
+    private final Color[] palette;
+    private Color paletteColor;
+    private HitCounterConfig.FadeCurve paletteCurve;
+
+    private boolean active;
+    private Color color;
+    private HitCounterConfig.FadeCurve curve;
+    private int startCycle;
+    private int durationCycles;
+
+    private final Color[] queuedColors = new Color[QUEUE_SIZE];
+    private final HitCounterConfig.FadeCurve[] queuedCurves = new HitCounterConfig.FadeCurve[QUEUE_SIZE];
+    private final int[] queuedDurations = new int[QUEUE_SIZE];
+    private int queueHead;
+    private int queueSize;
+
+    FlashEffect(HitCounterConfig.FlashStyle style)
+    {
+        this.style = style;
+        this.palette = new Color[style == HitCounterConfig.FlashStyle.BORDER ? STEPS * BORDER_LAYERS : STEPS];
+    }
+
+    HitCounterConfig.FlashStyle getStyle()
+    {
+        return style;
+    }
+
+    void trigger(Color color, int durationCycles, HitCounterConfig.FadeCurve curve, int cycle)
+    {
+        if (!active)
+        {
+            start(color, durationCycles, curve, cycle);
+            return;
+        }
+
+        if (color.equals(this.color) && curve == this.curve)
+        {
+            int end = Math.max(startCycle + this.durationCycles, cycle + durationCycles);
+            if (style == HitCounterConfig.FlashStyle.FADE)
+            {
+                // Restart the fade from full strength rather than jumping mid-curve
+                startCycle = cycle;
+            }
+            this.durationCycles = end - startCycle;
+            return;
+        }
+
+        if (queueSize == QUEUE_SIZE)
+        {
+            // Drop the oldest queued flash to make room
+            queueHead = (queueHead + 1) % QUEUE_SIZE;
+            queueSize--;
+        }
+
+        int tail = (queueHead + queueSize) % QUEUE_SIZE;
+        queuedColors[tail] = color;
+        queuedCurves[tail] = curve;
+        queuedDurations[tail] = durationCycles;
+        queueSize++;
+    }
+
+    /**
+     * Expires the running effect and starts the next queued one if needed.
+     *
+     * @return true if there is an effect to draw at this cycle
+     */
+    boolean advance(int cycle)
+    {
+        while (active && cycle - startCycle > durationCycles)
+        {
+            if (queueSize == 0)
+            {
+                active = false;
+                break;
+            }
+
+            int head = queueHead;
+            queueHead = (queueHead + 1) % QUEUE_SIZE;
+            queueSize--;
+            start(queuedColors[head], queuedDurations[head], queuedCurves[head], cycle);
+            queuedColors[head] = null;
+        }
+
+        return active;
+    }
+
+    void clear()
+    {
+        active = false;
+        color = null;
+        queueHead = 0;
+        queueSize = 0;
+        for (int i = 0; i < QUEUE_SIZE; i++)
+        {
+            queuedColors[i] = null;
+        }
+    }
+
+    /**
+     * Colour to fill with at the given cycle. For the border style,
+     * layer 0 is the outermost rectangle.
+     */
+    Color colorAt(int cycle, int layer)
+    {
+        int elapsed = cycle - startCycle;
+        int step;
+
+        if (style == HitCounterConfig.FlashStyle.FADE)
+        {
+            step = durationCycles <= 0 ? STEPS - 1 : Math.min(STEPS - 1, elapsed * (STEPS - 1) / durationCycles);
+        }
+        else
+        {
+            // Triangle wave that starts at full strength
+            int half = PULSE_PERIOD_CYCLES / 2;
+            int phase = elapsed % PULSE_PERIOD_CYCLES;
+            step = Math.abs(half - phase) * (STEPS - 1) / half;
+        }
+
+        return palette[layer * STEPS + step];
+    }
+
+    private void start(Color color, int durationCycles, HitCounterConfig.FadeCurve curve, int cycle)
+    {
+        this.active = true;
+        this.color = color;
+        this.curve = curve;
+        this.startCycle = cycle;
+        this.durationCycles = durationCycles;
+
+        if (!color.equals(paletteColor) || curve != paletteCurve)
+        {
+            buildPalette(color, curve);
+        }
+    }
+
+    private void buildPalette(Color color, HitCounterConfig.FadeCurve curve)
+    {
+        switch (style)
+        {
+            case FADE:
+                // Indexed by progress through the effect
+                for (int i = 0; i < STEPS; i++)
+                {
+                    float progress = (float) i / (STEPS - 1);
+                    palette[i] = withAlpha(color, Math.round(FILL_ALPHA * (1f - ease(progress, curve))));
+                }
+                break;
+
+            case BORDER:
+                // Indexed by pulse intensity, fading towards the inside of the screen
+                for (int layer = 0; layer < BORDER_LAYERS; layer++)
+                {
+                    for (int i = 0; i < STEPS; i++)
+                    {
+                        int alpha = BORDER_ALPHA * i * (BORDER_LAYERS - layer) / ((STEPS - 1) * BORDER_LAYERS);
+                        palette[layer * STEPS + i] = withAlpha(color, alpha);
+                    }
+                }
+                break;
+
+            case PULSE:
+            case CORNER:
+            default:
+                // Indexed by pulse intensity
+                for (int i = 0; i < STEPS; i++)
+                {
+                    palette[i] = withAlpha(color, FILL_ALPHA * i / (STEPS - 1));
+                }
+                break;
+        }
+
+        paletteColor = color;
+        paletteCurve = curve;
+    }
+
+    private static float ease(float progress, HitCounterConfig.FadeCurve curve)
+    {
+        switch (curve)
+        {
+            case EASE_IN:
+                return progress * progress;
+            case EASE_OUT:
+                return 1f - (1f - progress) * (1f - progress);
+            case LINEAR:
+            default:
+                return progress;
+        }
+    }
+
+    private static Color withAlpha(Color color, int alpha)
+    {
+        return new Color(color.getRed(), color.getGreen(), color.getBlue(), alpha);
+    }
+}
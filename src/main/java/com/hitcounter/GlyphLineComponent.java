@@ -0,0 +1,126 @@
+package com.hitcounter;
+
+import net.runelite.client.ui.overlay.components.LayoutableRenderableEntity;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * A label and count laid out like a {@link net.runelite.client.ui.overlay.components.LineComponent},
+ * with the count drawn from a {@link DigitAtlas}.
+ * <p>
+ * The count is put together from the atlas once when it changes, so a frame draws it with a
+ * single image blit. The atlas is rebuilt only when the font, text antialiasing or the counter
+ * colours change. The label is still drawn as text.
+ */
+final class GlyphLineComponent implements LayoutableRenderableEntity
+{
+    private final Point preferredLocation = new Point();
+    private final Dimension preferredSize = new Dimension();
+    private final Rectangle bounds = new Rectangle();
+    /**
+     * Returned from every render; the panel reads it straight away and does not keep it.
+     */
+    private final Dimension renderedSize = new Dimension();
+
+    private DigitAtlas atlas;
+
+    /**
+     * The count rendered from the atlas, and the value and atlas row it shows.
+     */
+    private BufferedImage countImage;
+    private int countImageValue;
+    private int countImageRow;
+    /**
+     * Default and trigger colour, the two the count can be drawn in.
+     */
+    private final Color[] colors = {Color.WHITE, Color.RED};
+
+    private String label = "";
+    private int value;
+    private Color color = Color.WHITE;
+
+    /**
+     * Sets the two colours the count can be drawn in, which are the ones pre-rendered.
+     */
+    void setColors(Color defaultColor, Color triggerColor)
+    {
+        colors[0] = defaultColor;
+        colors[1] = triggerColor;
+    }
+
+    void set(String label, int value, Color color)
+    {
+        this.label = label;
+        this.value = value;
+        this.color = color;
+    }
+
+    @Override
+    public Dimension render(Graphics2D graphics)
+    {
+        Font font = graphics.getFont();
+        Object antialiasing = graphics.getRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING);
+        if (antialiasing == null)
+        {
+            antialiasing = RenderingHints.VALUE_TEXT_ANTIALIAS_DEFAULT;
+        }
+        if (atlas == null || !atlas.matches(font, antialiasing, colors))
+        {
+            atlas = new DigitAtlas(font, antialiasing, colors);
+            countImage = null;
+        }
+
+        FontMetrics metrics = graphics.getFontMetrics();
+        int x = preferredLocation.x;
+        int y = preferredLocation.y + metrics.getHeight();
+
+        graphics.setColor(Color.BLACK);
+        graphics.drawString(label, x + 1, y + 1);
+        graphics.setColor(Color.WHITE);
+        graphics.drawString(label, x, y);
+
+        int row = atlas.rowOf(color);
+        if (value >= 0 && row >= 0)
+        {
+            if (countImage == null || value != countImageValue || row != countImageRow)
+            {
+                countImage = atlas.render(value, row);
+                countImageValue = value;
+                countImageRow = row;
+            }
+            graphics.drawImage(countImage, x + preferredSize.width - atlas.width(value), y - atlas.getAscent(), null);
+        }
+        else
+        {
+            String text = CounterText.of(value);
+            int right = x + preferredSize.width - metrics.stringWidth(text);
+            graphics.setColor(Color.BLACK);
+            graphics.drawString(text, right + 1, y + 1);
+            graphics.setColor(color);
+            graphics.drawString(text, right, y);
+        }
+
+        bounds.setBounds(preferredLocation.x, preferredLocation.y, preferredSize.width, metrics.getHeight());
+        renderedSize.setSize(preferredSize.width, metrics.getHeight());
+        return renderedSize;
+    }
+
+    @Override
+    public Rectangle getBounds()
+    {
+        return bounds;
+    }
+
+    @Override
+    public void setPreferredLocation(Point position)
+    {
+        preferredLocation.setLocation(position);
+    }
+
+    @Override
+    public void setPreferredSize(Dimension dimension)
+    {
+        preferredSize.setSize(dimension);
+    }
+}
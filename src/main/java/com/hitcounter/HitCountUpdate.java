@@ -0,0 +1,23 @@
+package com.hitcounter;
+
+import lombok.Getter;
+import net.runelite.client.party.messages.PartyMemberMessage;
+
+/**
+ * A party member's count on their current target.
+ * Only sent when the target or count changed since the last update, and at most once per
+ * {@link PartyHitShare#MIN_SEND_INTERVAL_TICKS} ticks. The count is absolute rather than
+ * the change, so a dropped message is corrected by the next one.
+ */
+@Getter
+public class HitCountUpdate extends PartyMemberMessage
+{
+    private final int npcIndex;
+    private final int count;
+
+    public HitCountUpdate(int npcIndex, int count)
+    {
+        this.npcIndex = npcIndex;
+        this.count = count;
+    }
+}
@@ -35,6 +35,21 @@ public interface HitCounterConfig extends Config {
     )
     String keybindSection = "keybindSection";
 
+    @ConfigSection(
+            name = "History",
+            description = "Settings for keeping hit history between sessions.",
+            position = 4
+    )
+    String historySection = "historySection";
+
+    @ConfigSection(
+            name = "Debug",
+            description = "Settings for measuring the plugin's own performance.",
+            position = 5,
+            closedByDefault = true
+    )
+    String debugSection = "debugSection";
+
     /**
      * ======================
      *       Reset Options
@@ -117,7 +132,8 @@ public interface HitCounterConfig extends Config {
     @ConfigItem(
             keyName = "excludedNpcNames",
             name = "Ignored NPCs",
-            description = "List of NPC names that will not increase the attack count. (Comma-separated)",
+            description = "NPCs and hitsplats that will not increase the attack count. Comma-separated NPC names " +
+                    "(* and ? as wildcards, e.g. *imp*), NPC ids, or hitsplat types as type:<id>.",
             position = 3,
             section = displaySection
     )
@@ -126,6 +142,79 @@ public interface HitCounterConfig extends Config {
         return "";
     }
 
+    @ConfigItem(
+            keyName = "includedNpcs",
+            name = "Tracked NPCs",
+            description = "Only these NPCs and hitsplats increase the attack count (empty = all). " +
+                    "Same format as Ignored NPCs, which takes precedence.",
+            position = 4,
+            section = displaySection
+    )
+    default String includedNpcs()
+    {
+        return "";
+    }
+
+    @ConfigItem(
+            keyName = "counterScope",
+            name = "Count Scope",
+            description = "Show the hits on your current target, or the total across all targets.",
+            position = 5,
+            section = displaySection
+    )
+    default CounterScope counterScope()
+    {
+        return CounterScope.AGGREGATE;
+    }
+
+    @ConfigItem(
+            keyName = "countMode",
+            name = "Count",
+            description = "Count every hitsplat, or attacks, where a multi-hit attack such as the scythe counts once.",
+            position = 6,
+            section = displaySection
+    )
+    default CountMode countMode()
+    {
+        return CountMode.HITSPLATS;
+    }
+
+    @ConfigItem(
+            keyName = "shareWithParty",
+            name = "Share With Party",
+            description = "Send your count on your target to your RuneLite party, and show theirs on the same target.",
+            position = 7,
+            section = displaySection
+    )
+    default boolean shareWithParty()
+    {
+        return false;
+    }
+
+    @ConfigItem(
+            keyName = "glyphCounter",
+            name = "Pre-rendered Digits",
+            description = "Draw the overlay count from digit images rendered once, instead of drawing text every frame.",
+            position = 8,
+            section = displaySection
+    )
+    default boolean glyphCounter()
+    {
+        return false;
+    }
+
+    @ConfigItem(
+            keyName = "rateWindow",
+            name = "Hit Rate",
+            description = "Show hits per minute and damage per tick over the last 10, 100 or 1000 ticks.",
+            position = 9,
+            section = displaySection
+    )
+    default RateWindow rateWindow()
+    {
+        return RateWindow.OFF;
+    }
+
     /**
      * ======================
      *       Trigger Options
@@ -191,6 +280,89 @@ public interface HitCounterConfig extends Config {
         return Color.WHITE;
     }
 
+    @ConfigItem(
+            keyName = "flashStyle",
+            name = "Flash Style",
+            description = "How the flash effect is drawn.",
+            position = 5,
+            section = hitTriggerSection
+    )
+    default FlashStyle flashStyle()
+    {
+        return FlashStyle.PULSE;
+    }
+
+    @ConfigItem(
+            keyName = "flashCurve",
+            name = "Fade Curve",
+            description = "How quickly the Fade flash style fades out.",
+            position = 6,
+            section = hitTriggerSection
+    )
+    default FadeCurve flashCurve()
+    {
+        return FadeCurve.LINEAR;
+    }
+
+    @Range(
+            min = 1,
+            max = 20
+    )
+    @Units(Units.TICKS)
+    @ConfigItem(
+            keyName = "flashDuration",
+            name = "Flash Duration",
+            description = "How long the flash effect lasts.",
+            position = 7,
+            section = hitTriggerSection
+    )
+    default int flashDuration()
+    {
+        return 2;
+    }
+
+    @ConfigItem(
+            keyName = "triggerRules",
+            name = "Trigger Rules",
+            description = "Extra triggers, one per line as count: effect[: npc name or id]. " +
+                    "Count is a number, a range like 10-15, or every N. Example: every 4: sound",
+            position = 8,
+            section = hitTriggerSection
+    )
+    default String triggerRules()
+    {
+        return "";
+    }
+
+    @ConfigItem(
+            keyName = "soundFile",
+            name = "Sound File",
+            description = "WAV file played by the sound effect, absolute or relative to the .runelite folder. " +
+                    "Leave empty to use the game sound.",
+            position = 9,
+            section = hitTriggerSection
+    )
+    default String soundFile()
+    {
+        return "";
+    }
+
+    @Range(
+            max = 100
+    )
+    @Units(Units.PERCENT)
+    @ConfigItem(
+            keyName = "soundVolume",
+            name = "Sound Volume",
+            description = "Volume of the sound file.",
+            position = 10,
+            section = hitTriggerSection
+    )
+    default int soundVolume()
+    {
+        return 80;
+    }
+
     /**
      * ======================
      *       Keybind Options
@@ -207,6 +379,64 @@ public interface HitCounterConfig extends Config {
         return Keybind.NOT_SET;
     }
 
+    /**
+     * ======================
+     *       History Options
+     * ======================
+     */
+    @ConfigItem(
+            keyName = "recordHitLog",
+            name = "Record Hit Log",
+            description = "Append every counted hit to a log file in the RuneLite folder.",
+            position = 0,
+            section = historySection
+    )
+    default boolean recordHitLog()
+    {
+        return false;
+    }
+
+    @ConfigItem(
+            keyName = "trackPersonalRecords",
+            name = "Personal Records",
+            description = "Keep your fewest and average hits per kill for each NPC, and show your best next to the count.",
+            position = 1,
+            section = historySection
+    )
+    default boolean trackPersonalRecords()
+    {
+        return false;
+    }
+
+    /**
+     * ======================
+     *       Debug Options
+     * ======================
+     */
+    @ConfigItem(
+            keyName = "metricsOverlay",
+            name = "Timings Overlay",
+            description = "Show how long the plugin's event handlers and overlays take each call.",
+            position = 0,
+            section = debugSection
+    )
+    default boolean metricsOverlay()
+    {
+        return false;
+    }
+
+    @ConfigItem(
+            keyName = "metricsLog",
+            name = "Log Timings",
+            description = "Write the same timings to the client log once a minute.",
+            position = 1,
+            section = debugSection
+    )
+    default boolean metricsLog()
+    {
+        return false;
+    }
+
     /**
      * Trigger
      */
@@ -218,6 +448,24 @@ public interface HitCounterConfig extends Config {
         FLASH
     }
 
+    /**
+     * Flash
+     */
+    enum FlashStyle
+    {
+        PULSE,
+        BORDER,
+        CORNER,
+        FADE
+    }
+
+    enum FadeCurve
+    {
+        LINEAR,
+        EASE_IN,
+        EASE_OUT
+    }
+
     /**
      * Display
      */
@@ -227,6 +475,29 @@ public interface HitCounterConfig extends Config {
         INFOBOX
     }
 
+    /**
+     * Scope
+     */
+    enum CounterScope
+    {
+        TARGET,
+        AGGREGATE
+    }
+
+    enum CountMode
+    {
+        HITSPLATS,
+        ATTACKS
+    }
+
+    enum RateWindow
+    {
+        OFF,
+        TICKS_10,
+        TICKS_100,
+        TICKS_1000
+    }
+
     /**
      * Mode
      */
@@ -0,0 +1,548 @@
+package com.hitcounter;
+
+import java.util.Arrays;
+
+/**
+ * Counting, reset and trigger logic, independent of the RuneLite client.
+ * The plugin feeds it from its event handlers; {@link HitEventLog} replays
+ * recorded or generated events through it at full speed.
+ * <p>
+ * Hitsplats are batched and applied once per game tick by {@link #flush()}.
+ * All hitsplats of a tick count as one attack, since the player attacks at most
+ * once per tick; multi-hit weapons such as the scythe land several hitsplats for it.
+ * Triggers and resets are evaluated once per flush.
+ * <p>
+ * The per-hit statistics ({@link DamageStats}, {@link HitCube}, {@link KillHistory} and
+ * {@link RollingRates}) are updated here too rather than on the {@link HitEventWorker},
+ * because everything that reads them runs on the client thread; see the worker.
+ * Not thread safe; the plugin only drives it from the client thread.
+ */
+public class HitCounterEngine
+{
+    /**
+     * Receives the effect of each trigger that fires.
+     */
+    public interface TriggerListener
+    {
+        void onTrigger(HitCounterConfig.TriggerEffectMode effect, int count);
+    }
+
+    public static final int NO_TARGET = -1;
+
+    public static final int NO_TICK = -1;
+
+    static final int OUT_OF_COMBAT_TICKS = 10;
+
+    static final int CUBE_ENTRIES = 4096;
+
+    private static final HitCounterConfig.TriggerEffectMode[] EFFECTS = HitCounterConfig.TriggerEffectMode.values();
+
+    private final TriggerListener triggerListener;
+
+    /**
+     * Hitsplats and attacks per target, keyed by NPC index.
+     */
+    private final IntIntMap targetHits = new IntIntMap(64);
+    private final IntIntMap targetAttacks = new IntIntMap(64);
+
+    /**
+     * Damage per target and for the session, including hits filtered out as unsuccessful.
+     */
+    private final DamageStats damageStats = new DamageStats();
+
+    /**
+     * NPC id and first hit tick of every NPC with damage stats, for the kill history.
+     */
+    private final IntIntMap targetNpcIds = new IntIntMap(64);
+    private final IntIntMap targetFirstTicks = new IntIntMap(64);
+
+    private final KillHistory kills = new KillHistory();
+
+    /**
+     * Counted hits and damage over the last few hundred ticks, kept across resets.
+     */
+    private final RollingRates rates = new RollingRates();
+
+    /**
+     * Counted hits by NPC id, weapon, attack style and hitsplat type, kept across resets.
+     */
+    private final HitCube cube = new HitCube(CUBE_ENTRIES);
+
+    /**
+     * Weapon and attack style the next hits are recorded under in the {@link #cube}.
+     */
+    private int weaponId = HitCube.UNARMED;
+    private int attackStyle;
+
+    /**
+     * Hitsplats waiting for the next flush, and how many of them each target has.
+     */
+    private int[] batchTargets = new int[16];
+    private int[] batchNpcIds = new int[16];
+    private int batchSize;
+    private final IntIntMap batchTargetHits = new IntIntMap(16);
+
+    private HitCounterSettings settings;
+
+    /**
+     * Hitsplats and attacks across all targets since the last reset.
+     */
+    private int aggregateHits;
+    private int aggregateAttacks;
+
+    /**
+     * NPC index of the last target hit, or {@link #NO_TARGET}.
+     */
+    private int targetIndex = NO_TARGET;
+
+    /**
+     * NPC id of the last target hit, for per-NPC trigger rules.
+     */
+    private int targetNpcId = NO_TARGET;
+
+    /**
+     * Last highlight lookup, so renderers asking every frame reuse the result until the count changes.
+     */
+    private TriggerTable highlightTable;
+    private int highlightCount = -1;
+    private int highlightNpcId;
+    private boolean highlighted;
+
+    /**
+     * Game tick of the last flushed hit or reset, or {@link #NO_TICK}.
+     */
+    private int lastAttackTick = NO_TICK;
+
+    private int tick;
+
+    /**
+     * Count the last batched hit will bring the counter to when its batch is flushed.
+     */
+    private int lastHitCount;
+
+    public HitCounterEngine(TriggerListener triggerListener)
+    {
+        this.triggerListener = triggerListener;
+    }
+
+    public void configure(HitCounterSettings settings)
+    {
+        this.settings = settings;
+    }
+
+    public HitCounterSettings getSettings()
+    {
+        return settings;
+    }
+
+    /**
+     * Advances the engine clock to the given game tick.
+     */
+    public void tick(int tick)
+    {
+        this.tick = tick;
+        rates.advance(tick);
+    }
+
+    public int getTick()
+    {
+        return tick;
+    }
+
+    /**
+     * Sets the weapon and attack style the following hits are broken down by.
+     *
+     * @param weaponId equipped weapon id, or {@link HitCube#UNARMED}
+     */
+    public void setLoadout(int weaponId, int attackStyle)
+    {
+        this.weaponId = weaponId;
+        this.attackStyle = attackStyle;
+    }
+
+    /**
+     * Batches one of the local player's hitsplats that passed the hit filter.
+     *
+     * @return true if the hit will be counted at the next flush
+     */
+    public boolean hitsplat(int npcIndex, int npcId, int hitsplatType, int amount)
+    {
+        HitCounterSettings settings = this.settings;
+        damageStats.record(npcIndex, amount);
+        kills.hit(npcIndex, tick, hitsplatType, amount);
+        if (!targetNpcIds.containsKey(npcIndex))
+        {
+            targetNpcIds.put(npcIndex, npcId);
+            targetFirstTicks.put(npcIndex, tick);
+        }
+        else if (targetNpcIds.get(npcIndex) != npcId)
+        {
+            // A restored target's index belongs to another NPC after a relog or world hop, so its counts go
+            targetHits.remove(npcIndex);
+            targetAttacks.remove(npcIndex);
+            targetNpcIds.put(npcIndex, npcId);
+            targetFirstTicks.put(npcIndex, tick);
+        }
+
+        if (settings.isOnlyCountSuccessfulHits() && amount <= 0)
+        {
+            return false;
+        }
+        rates.record(amount);
+        cube.add(npcId, weaponId, attackStyle, hitsplatType, amount);
+
+        if (batchSize == batchTargets.length)
+        {
+            batchTargets = Arrays.copyOf(batchTargets, batchSize * 2);
+            batchNpcIds = Arrays.copyOf(batchNpcIds, batchSize * 2);
+        }
+        batchTargets[batchSize] = npcIndex;
+        batchNpcIds[batchSize] = npcId;
+        batchSize++;
+        int pendingTargetHits = batchTargetHits.increment(npcIndex);
+
+        boolean targetScope = settings.getCounterScope() == HitCounterConfig.CounterScope.TARGET;
+        if (settings.getCountMode() == HitCounterConfig.CountMode.ATTACKS)
+        {
+            lastHitCount = (targetScope ? targetAttacks.get(npcIndex) : aggregateAttacks) + 1;
+        }
+        else
+        {
+            lastHitCount = targetScope ? targetHits.get(npcIndex) + pendingTargetHits : aggregateHits + batchSize;
+        }
+        return true;
+    }
+
+    /**
+     * Applies the batched hitsplats as one attack, then fires triggers and resets once.
+     *
+     * @return true if there was anything to apply
+     */
+    public boolean flush()
+    {
+        if (batchSize == 0)
+        {
+            return false;
+        }
+
+        final HitCounterSettings settings = this.settings;
+        final TriggerTable triggers = settings.getTriggerTable();
+        final boolean attacks = settings.getCountMode() == HitCounterConfig.CountMode.ATTACKS;
+        final boolean targetScope = settings.getCounterScope() == HitCounterConfig.CounterScope.TARGET;
+        final boolean resetAfterHits = settings.isResetAfterXHits();
+
+        int effects = 0;
+        int count = 0;
+
+        for (int i = 0; i < batchSize; i++)
+        {
+            int npcIndex = batchTargets[i];
+            int hits = batchTargetHits.remove(npcIndex);
+            if (hits == 0)
+            {
+                // Already applied with this target's first hitsplat in the batch
+                continue;
+            }
+
+            int before = attacks ? targetAttacks.get(npcIndex) : targetHits.get(npcIndex);
+            int targetHitCount = targetHits.add(npcIndex, hits);
+            int targetAttackCount = targetAttacks.increment(npcIndex);
+
+            if (targetScope)
+            {
+                count = attacks ? targetAttackCount : targetHitCount;
+                effects |= triggers.effectsBetween(before, count, batchNpcIds[i]);
+
+                if (resetAfterHits && count >= settings.getResetHitCount())
+                {
+                    targetHits.remove(npcIndex);
+                    targetAttacks.remove(npcIndex);
+                }
+            }
+        }
+
+        final int last = batchSize - 1;
+        targetIndex = batchTargets[last];
+        targetNpcId = batchNpcIds[last];
+        lastAttackTick = tick;
+
+        int aggregateBefore = attacks ? aggregateAttacks : aggregateHits;
+        aggregateHits += batchSize;
+        aggregateAttacks++;
+        batchSize = 0;
+
+        if (!targetScope)
+        {
+            count = attacks ? aggregateAttacks : aggregateHits;
+            effects |= triggers.effectsBetween(aggregateBefore, count, targetNpcId);
+
+            if (resetAfterHits && count >= settings.getResetHitCount())
+            {
+                resetCounts();
+            }
+        }
+
+        for (int effect = 0; effects != 0; effect++, effects >>>= 1)
+        {
+            if ((effects & 1) != 0)
+            {
+                triggerListener.onTrigger(EFFECTS[effect], count);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Handles an NPC dying: closes its kill in the kill history if the player hit it.
+     * The counters are left to {@link #despawn(int)}, which follows a few ticks later.
+     *
+     * @param npcName name for the kill history, or null if unknown
+     */
+    public void kill(int npcIndex, String npcName)
+    {
+        flush();
+
+        int slot = damageStats.slotOf(npcIndex);
+        if (slot != DamageStats.NO_SLOT && kills.isOpen(npcIndex))
+        {
+            kills.record(npcIndex, targetNpcIds.get(npcIndex), npcName, targetFirstTicks.get(npcIndex), tick,
+                    damageStats.getHits(slot), damageStats.getTotal(slot), damageStats.getMax(slot));
+        }
+    }
+
+    /**
+     * Handles an NPC despawning. Hits batched earlier in the tick are applied first.
+     * Hits on an NPC whose death was not seen are dropped from the kill history, since
+     * leaving it behind by teleporting, logging out or walking away is not a kill.
+     *
+     * @return true if it was the current target
+     */
+    public boolean despawn(int npcIndex)
+    {
+        flush();
+        kills.discard(npcIndex);
+
+        // The index is reused by the next NPC to spawn, so its counts always go
+        targetHits.remove(npcIndex);
+        targetAttacks.remove(npcIndex);
+        targetNpcIds.remove(npcIndex);
+        targetFirstTicks.remove(npcIndex);
+        damageStats.evict(npcIndex);
+
+        if (npcIndex != targetIndex)
+        {
+            return false;
+        }
+
+        targetIndex = NO_TARGET;
+        targetNpcId = NO_TARGET;
+
+        if (settings.isResetOnNpcDespawn())
+        {
+            aggregateHits = 0;
+            aggregateAttacks = 0;
+            lastAttackTick = tick;
+        }
+        return true;
+    }
+
+    /**
+     * Handles the local player dying.
+     */
+    public void death()
+    {
+        flush();
+        targetIndex = NO_TARGET;
+        targetNpcId = NO_TARGET;
+        resetCounts();
+    }
+
+    /**
+     * Resets the counters, after applying hits batched earlier in the tick.
+     */
+    public void reset()
+    {
+        flush();
+        resetCounts();
+    }
+
+    /**
+     * Clears all state, as on plugin start.
+     */
+    public void clear()
+    {
+        targetHits.clear();
+        targetAttacks.clear();
+        batchTargetHits.clear();
+        batchSize = 0;
+        damageStats.clear();
+        targetNpcIds.clear();
+        targetFirstTicks.clear();
+        kills.clear();
+        rates.clear();
+        cube.clear();
+        aggregateHits = 0;
+        aggregateAttacks = 0;
+        targetIndex = NO_TARGET;
+        targetNpcId = NO_TARGET;
+        lastAttackTick = NO_TICK;
+        highlightTable = null;
+    }
+
+    /**
+     * The count to display: hitsplats or attacks, on the current target or across all
+     * targets, depending on the configured mode and scope.
+     */
+    public int getCount()
+    {
+        return getCount(settings.getCountMode());
+    }
+
+    /**
+     * Hitsplats or attacks, on the current target or across all targets depending on the configured scope.
+     */
+    public int getCount(HitCounterConfig.CountMode mode)
+    {
+        boolean attacks = mode == HitCounterConfig.CountMode.ATTACKS;
+        if (settings.getCounterScope() == HitCounterConfig.CounterScope.TARGET)
+        {
+            return targetIndex == NO_TARGET ? 0 : getTargetCount(targetIndex, attacks);
+        }
+
+        return attacks ? aggregateAttacks : aggregateHits;
+    }
+
+    /**
+     * Whether a highlight rule matches the displayed count on the current target.
+     */
+    public boolean isHighlighted()
+    {
+        TriggerTable table = settings.getTriggerTable();
+        int count = getCount();
+        if (table != highlightTable || count != highlightCount || targetNpcId != highlightNpcId)
+        {
+            highlighted = table.isHighlighted(count, targetNpcId);
+            highlightTable = table;
+            highlightCount = count;
+            highlightNpcId = targetNpcId;
+        }
+        return highlighted;
+    }
+
+    /**
+     * Whether nothing has been counted since the engine was cleared.
+     */
+    public boolean isEmpty()
+    {
+        return batchSize == 0 && targetIndex == NO_TARGET && aggregateAttacks == 0 && targetAttacks.isEmpty();
+    }
+
+    /**
+     * Puts back counters saved by a {@link CounterSnapshot}. Damage stats and kills start empty.
+     * NPC indexes are reassigned on a relog or world hop, so the target's counts only carry on
+     * if the next hit on its index lands on the same NPC id.
+     */
+    public void restore(int aggregateHits, int aggregateAttacks, int targetIndex, int targetNpcId,
+                        int targetHitCount, int targetAttackCount, int lastAttackTick)
+    {
+        this.aggregateHits = aggregateHits;
+        this.aggregateAttacks = aggregateAttacks;
+        this.targetIndex = targetIndex;
+        this.targetNpcId = targetNpcId;
+        if (targetIndex != NO_TARGET)
+        {
+            targetHits.put(targetIndex, targetHitCount);
+            targetAttacks.put(targetIndex, targetAttackCount);
+            targetNpcIds.put(targetIndex, targetNpcId);
+            targetFirstTicks.put(targetIndex, tick);
+        }
+        this.lastAttackTick = lastAttackTick;
+    }
+
+    public DamageStats getDamageStats()
+    {
+        return damageStats;
+    }
+
+    public KillHistory getKills()
+    {
+        return kills;
+    }
+
+    public RollingRates getRates()
+    {
+        return rates;
+    }
+
+    public HitCube getCube()
+    {
+        return cube;
+    }
+
+    /**
+     * NPC id of a target with damage stats, or 0 if it has none.
+     */
+    public int getTargetNpcId(int npcIndex)
+    {
+        return targetNpcIds.get(npcIndex);
+    }
+
+    public int getTargetFirstTick(int npcIndex)
+    {
+        return targetFirstTicks.get(npcIndex);
+    }
+
+    public int getLastHitCount()
+    {
+        return lastHitCount;
+    }
+
+    public int getTargetCount(int npcIndex, boolean attacks)
+    {
+        return attacks ? targetAttacks.get(npcIndex) : targetHits.get(npcIndex);
+    }
+
+    public int getAggregateHits()
+    {
+        return aggregateHits;
+    }
+
+    public int getAggregateAttacks()
+    {
+        return aggregateAttacks;
+    }
+
+    public int getTargetIndex()
+    {
+        return targetIndex;
+    }
+
+    public int getLastAttackTick()
+    {
+        return lastAttackTick;
+    }
+
+    /**
+     * Determines if the player is considered "out of combat"
+     * based on game ticks elapsed since last hit.
+     */
+    public boolean isOutOfCombat()
+    {
+        if (targetIndex == NO_TARGET || lastAttackTick == NO_TICK)
+        {
+            return true;
+        }
+
+        return tick - lastAttackTick > OUT_OF_COMBAT_TICKS;
+    }
+
+    private void resetCounts()
+    {
+        targetHits.clear();
+        targetAttacks.clear();
+        aggregateHits = 0;
+        aggregateAttacks = 0;
+        lastAttackTick = tick;
+    }
+}
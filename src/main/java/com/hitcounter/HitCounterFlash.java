@@ -6,84 +6,183 @@ import net.runelite.client.ui.overlay.OverlayLayer;
 import net.runelite.client.ui.overlay.OverlayPosition;
 import net.runelite.client.ui.overlay.OverlayPriority;
 
-import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.awt.*;
-import java.time.Duration;
-import java.time.Instant;
 
 public class HitCounterFlash extends Overlay
 {
-    @Nullable
-    private Color flashColor = null;
-
     private final Client client;
-    private Instant flashStart;
-    private int durationTicks;
+    private final HitCounterMetrics metrics;
+
+    /**
+     * One slot per style, so different styles can run at the same time.
+     */
+    private final FlashEffect[] effects;
+
+    /**
+     * Reused every frame to read the graphics clip without allocating.
+     */
+    private final Rectangle clipBounds = new Rectangle();
+
+    /**
+     * Canvas size and the part of it inside the clip, in canvas coordinates.
+     */
+    private int canvasWidth;
+    private int canvasHeight;
+    private int minX;
+    private int minY;
+    private int maxX;
+    private int maxY;
 
-    private static final int DEFAULT_FLASH_ALPHA = 80;
+    /**
+     * Client game cycles (20ms) per server tick (600ms).
+     */
+    private static final int CYCLES_PER_TICK = 30;
 
-    private static final long TICK_DURATION_MS = 600L;
+    private static final int BORDER_THICKNESS = 6;
+
+    private static final int CORNER_DIVISOR = 8;
 
     @Inject
-    public HitCounterFlash(Client client)
+    public HitCounterFlash(Client client, HitCounterMetrics metrics)
     {
         this.client = client;
+        this.metrics = metrics;
         setPosition(OverlayPosition.DYNAMIC);
         setLayer(OverlayLayer.ALWAYS_ON_TOP);
         setPriority(OverlayPriority.HIGH);
+
+        HitCounterConfig.FlashStyle[] styles = HitCounterConfig.FlashStyle.values();
+        effects = new FlashEffect[styles.length];
+        for (int i = 0; i < styles.length; i++)
+        {
+            effects[i] = new FlashEffect(styles[i]);
+        }
     }
 
-    public void trigger(Color color, int durationTicks)
+    public void trigger(HitCounterConfig.FlashStyle style, Color color, int durationTicks, HitCounterConfig.FadeCurve curve)
     {
-        this.flashColor = color;
-        this.durationTicks = durationTicks;
-        this.flashStart = Instant.now();
+        effects[style.ordinal()].trigger(color, durationTicks * CYCLES_PER_TICK, curve, client.getGameCycle());
     }
 
     public void clear()
     {
-        this.flashStart = null;
-        this.flashColor = null;
-        this.durationTicks = 0;
+        for (FlashEffect effect : effects)
+        {
+            effect.clear();
+        }
     }
 
     @Override
     public Dimension render(Graphics2D graphics)
     {
-        if (flashStart == null || flashColor == null)
-        {
-            return null;
-        }
+        long start = metrics.start();
+        renderEffects(graphics);
+        metrics.record(HitCounterMetrics.Probe.FLASH, start);
+        return null;
+    }
 
-        long elapsed = Duration.between(flashStart, Instant.now()).toMillis();
-        if (elapsed > durationTicks * TICK_DURATION_MS)
+    private void renderEffects(Graphics2D graphics)
+    {
+        int cycle = client.getGameCycle();
+        boolean prepared = false;
+
+        for (FlashEffect effect : effects)
         {
-            clear();
-            return null;
+            if (!effect.advance(cycle))
+            {
+                continue;
+            }
+
+            if (!prepared)
+            {
+                prepareDrawArea(graphics);
+                prepared = true;
+            }
+
+            switch (effect.getStyle())
+            {
+                case BORDER:
+                    renderBorder(graphics, effect, cycle);
+                    break;
+                case CORNER:
+                    renderCorners(graphics, effect, cycle);
+                    break;
+                case PULSE:
+                case FADE:
+                default:
+                    graphics.setColor(effect.colorAt(cycle, 0));
+                    fillClipped(graphics, 0, 0, canvasWidth, canvasHeight);
+                    break;
+            }
         }
+    }
 
-        int cycle = client.getGameCycle();
-        boolean shouldRender = cycle % 40 >= 20;
+    private void prepareDrawArea(Graphics2D graphics)
+    {
+        final Canvas canvas = client.getCanvas();
+        canvasWidth = canvas.getWidth();
+        canvasHeight = canvas.getHeight();
+
+        // Left untouched when there is no clip
+        clipBounds.setBounds(0, 0, canvasWidth, canvasHeight);
+        graphics.getClipBounds(clipBounds);
+
+        minX = Math.max(0, clipBounds.x);
+        minY = Math.max(0, clipBounds.y);
+        maxX = Math.min(canvasWidth, clipBounds.x + clipBounds.width);
+        maxY = Math.min(canvasHeight, clipBounds.y + clipBounds.height);
+    }
+
+    private void renderBorder(Graphics2D graphics, FlashEffect effect, int cycle)
+    {
+        final int width = canvasWidth;
+        final int height = canvasHeight;
 
-        if (!shouldRender)
+        for (int layer = 0; layer < FlashEffect.BORDER_LAYERS; layer++)
         {
-            return null;
+            int inset = layer * BORDER_THICKNESS;
+            int innerWidth = width - inset * 2;
+            int innerHeight = height - inset * 2;
+            if (innerWidth <= 0 || innerHeight <= 0)
+            {
+                break;
+            }
+
+            graphics.setColor(effect.colorAt(cycle, layer));
+            fillClipped(graphics, inset, inset, innerWidth, BORDER_THICKNESS);
+            fillClipped(graphics, inset, height - inset - BORDER_THICKNESS, innerWidth, BORDER_THICKNESS);
+            fillClipped(graphics, inset, inset + BORDER_THICKNESS, BORDER_THICKNESS, innerHeight - BORDER_THICKNESS * 2);
+            fillClipped(graphics, width - inset - BORDER_THICKNESS, inset + BORDER_THICKNESS, BORDER_THICKNESS, innerHeight - BORDER_THICKNESS * 2);
         }
+    }
 
-        final int width = client.getCanvas().getWidth();
-        final int height = client.getCanvas().getHeight();
-
-        Color translucent = new Color(
-                flashColor.getRed(),
-                flashColor.getGreen(),
-                flashColor.getBlue(),
-                DEFAULT_FLASH_ALPHA
-        );
+    private void renderCorners(Graphics2D graphics, FlashEffect effect, int cycle)
+    {
+        final int width = canvasWidth;
+        final int height = canvasHeight;
+        final int size = Math.min(width, height) / CORNER_DIVISOR;
+
+        graphics.setColor(effect.colorAt(cycle, 0));
+        fillClipped(graphics, 0, 0, size, size);
+        fillClipped(graphics, width - size, 0, size, size);
+        fillClipped(graphics, 0, height - size, size, size);
+        fillClipped(graphics, width - size, height - size, size, size);
+    }
 
-        graphics.setColor(translucent);
-        graphics.fillRect(0, 0, width, height);
+    /**
+     * Fills the part of the rectangle inside the canvas and the current clip.
+     */
+    private void fillClipped(Graphics2D graphics, int x, int y, int width, int height)
+    {
+        int x1 = Math.max(x, minX);
+        int y1 = Math.max(y, minY);
+        int x2 = Math.min(x + width, maxX);
+        int y2 = Math.min(y + height, maxY);
 
-        return null;
+        if (x2 > x1 && y2 > y1)
+        {
+            graphics.fillRect(x1, y1, x2 - x1, y2 - y1);
+        }
     }
-}
\ No newline at end of file
+}
@@ -10,43 +10,56 @@ import java.awt.image.BufferedImage;
 public class HitCounterInfoBox extends InfoBox {
 
     private final HitCounterPlugin plugin;
-    private final HitCounterConfig config;
+    private final HitCounterInfoBoxController controller;
+    private final HitCounterMetrics metrics;
 
-    public HitCounterInfoBox(BufferedImage image, HitCounterPlugin plugin, HitCounterConfig config)
+    public HitCounterInfoBox(BufferedImage image, HitCounterPlugin plugin, HitCounterInfoBoxController controller,
+                             HitCounterMetrics metrics)
     {
         super(image, plugin);
         this.plugin = plugin;
-        this.config = config;
+        this.controller = controller;
+        this.metrics = metrics;
         setPriority(InfoBoxPriority.HIGH);
     }
 
+    @Override
+    public boolean render()
+    {
+        return controller.isVisible();
+    }
+
     @Override
     public String getText()
     {
-        return String.valueOf(plugin.getAttackCount());
+        long start = metrics.start();
+        String text = CounterText.of(plugin.getState().getCount());
+        metrics.record(HitCounterMetrics.Probe.INFOBOX_TEXT, start);
+        return text;
     }
 
     @Override
     public Color getTextColor()
     {
-        int count = plugin.getAttackCount();
-
-        if (config.triggerEffectMode() == HitCounterConfig.TriggerEffectMode.HIGHLIGHT &&
-                config.triggerHitCount() > 0 &&
-                count == config.triggerHitCount())
-        {
-            return config.triggerColor();
-        }
-
-        return config.defaultColor();
+        return plugin.getState().getCounterColor();
     }
 
     @Override
     public String getTooltip()
+    {
+        long start = metrics.start();
+        String tooltip = buildTooltip();
+        metrics.record(HitCounterMetrics.Probe.INFOBOX_TOOLTIP, start);
+        return tooltip;
+    }
+
+    private String buildTooltip()
     {
         StringBuilder tooltip = new StringBuilder();
 
-        NPC npc = plugin.getLastInteractedNpc();
+        // One state for the whole tooltip, so its lines agree with each other
+        HitCounterState state = plugin.getState();
+        NPC npc = state.getLastInteractedNpc();
         if (npc != null)
         {
             tooltip.append("Target: ").append(npc.getName());
@@ -56,7 +69,27 @@ public class HitCounterInfoBox extends InfoBox {
             }
         }
 
-        int trigger = config.triggerHitCount();
+        if (tooltip.length() > 0)
+        {
+            tooltip.append("</br>");
+        }
+        tooltip.append("Hitsplats: ").append(state.getHitsplats())
+                .append(" | Attacks: ").append(state.getAttacks());
+        if (state.getPersonalBest() != PersonalRecords.NO_BEST)
+        {
+            tooltip.append(" | Best: ").append(state.getPersonalBest())
+                    .append(", avg ").append(HitCounterOverlay.formatRate(state.getPersonalAverage()))
+                    .append(" over ").append(state.getPersonalKills()).append(" kills");
+        }
+
+        if (state.getSettings().getRateWindow() != HitCounterConfig.RateWindow.OFF)
+        {
+            tooltip.append("</br>Hits/min: ").append(HitCounterOverlay.formatRate(state.getHitsPerMinute()))
+                    .append(" | Dmg/tick: ").append(HitCounterOverlay.formatRate(state.getDamagePerTick()));
+        }
+
+        HitCounterSettings settings = state.getSettings();
+        int trigger = settings.getTriggerHitCount();
         if (trigger > 0)
         {
             if (tooltip.length() > 0)
@@ -64,8 +97,22 @@ public class HitCounterInfoBox extends InfoBox {
                 tooltip.append(" | ");
             }
             tooltip.append("Trigger: ").append(trigger)
-                    .append(" (").append(config.triggerEffectMode().name()).append(")");
+                    .append(" (").append(settings.getTriggerEffectMode().name()).append(")");
+        }
+        else if (settings.getTriggerTable().size() > 0)
+        {
+            if (tooltip.length() > 0)
+            {
+                tooltip.append(" | ");
+            }
+            tooltip.append("Triggers: ").append(settings.getTriggerTable().size()).append(" rules");
+        }
+
+        if (tooltip.length() > 0)
+        {
+            tooltip.append("</br>");
         }
+        tooltip.append(plugin.getDamageTooltip());
 
         return tooltip.toString();
     }
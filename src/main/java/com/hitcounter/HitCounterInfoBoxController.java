@@ -0,0 +1,127 @@
+package com.hitcounter;
+
+import net.runelite.client.game.SpriteManager;
+import net.runelite.client.ui.overlay.infobox.InfoBoxManager;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.awt.image.BufferedImage;
+
+/**
+ * Sole owner of the {@link HitCounterInfoBox}.
+ * The infobox is added to the {@link InfoBoxManager} once, when it is first
+ * needed, and then shown or hidden through its render gate. The sprite is
+ * fetched once and kept for the plugin's lifetime.
+ */
+@Singleton
+public class HitCounterInfoBoxController
+{
+    enum State
+    {
+        NOT_LOADED,
+        HIDDEN,
+        VISIBLE
+    }
+
+    private static final int RED_HITSPLAT = 1359;
+
+    private final HitCounterPlugin plugin;
+    private final InfoBoxManager infoBoxManager;
+    private final SpriteManager spriteManager;
+    private final HitCounterMetrics metrics;
+
+    private State state = State.NOT_LOADED;
+    private boolean loading;
+    private boolean wantVisible;
+
+    private BufferedImage sprite;
+    private HitCounterInfoBox infoBox;
+
+    @Inject
+    public HitCounterInfoBoxController(HitCounterPlugin plugin, InfoBoxManager infoBoxManager, SpriteManager spriteManager,
+                                       HitCounterMetrics metrics)
+    {
+        this.plugin = plugin;
+        this.infoBoxManager = infoBoxManager;
+        this.spriteManager = spriteManager;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Applies the requested visibility. Loads and registers the infobox the first time it is needed.
+     * Must be called on the client thread.
+     */
+    void setVisible(boolean visible)
+    {
+        wantVisible = visible;
+
+        switch (state)
+        {
+            case NOT_LOADED:
+                if (visible)
+                {
+                    load();
+                }
+                break;
+            case HIDDEN:
+            case VISIBLE:
+                state = visible ? State.VISIBLE : State.HIDDEN;
+                break;
+        }
+    }
+
+    /**
+     * Read by the infobox every frame to decide whether to draw.
+     */
+    boolean isVisible()
+    {
+        return state == State.VISIBLE;
+    }
+
+    /**
+     * Removes the infobox from the manager. The cached sprite is kept.
+     */
+    void unload()
+    {
+        if (infoBox != null)
+        {
+            infoBoxManager.removeInfoBox(infoBox);
+            infoBox = null;
+        }
+
+        state = State.NOT_LOADED;
+        wantVisible = false;
+    }
+
+    private void load()
+    {
+        if (sprite != null)
+        {
+            register(sprite);
+            return;
+        }
+
+        if (loading)
+        {
+            return;
+        }
+
+        loading = true;
+        spriteManager.getSpriteAsync(RED_HITSPLAT, 0, image ->
+        {
+            loading = false;
+            sprite = image;
+            if (wantVisible && state == State.NOT_LOADED)
+            {
+                register(image);
+            }
+        });
+    }
+
+    private void register(BufferedImage image)
+    {
+        infoBox = new HitCounterInfoBox(image, plugin, this, metrics);
+        state = wantVisible ? State.VISIBLE : State.HIDDEN;
+        infoBoxManager.addInfoBox(infoBox);
+    }
+}
@@ -0,0 +1,212 @@
+package com.hitcounter;
+
+import javax.inject.Singleton;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Timings of the plugin's client thread hot paths.
+ * <p>
+ * Each probe has a fixed log-linear histogram of nanosecond durations, eight buckets
+ * per power of two, held in one {@link AtomicLongArray}. Recording is a single atomic
+ * increment and never allocates or locks. Readers take the difference between two
+ * snapshots in a {@link Window}, which gives the rate, percentiles and max for that
+ * interval; the max is the upper bound of the highest bucket, within 12.5%.
+ * <p>
+ * Recording is off unless the debug overlay or log is enabled. While it is off,
+ * {@link #start()} returns 0 and {@link #record} ignores it.
+ */
+@Singleton
+public class HitCounterMetrics
+{
+    enum Probe
+    {
+        HITSPLAT("Hitsplat"),
+        GAME_TICK("Game tick"),
+        OVERLAY("Overlay"),
+        FLASH("Flash"),
+        INFOBOX_TEXT("Infobox text"),
+        INFOBOX_TOOLTIP("Infobox tooltip");
+
+        private final String label;
+
+        Probe(String label)
+        {
+            this.label = label;
+        }
+
+        String getLabel()
+        {
+            return label;
+        }
+    }
+
+    private static final Probe[] PROBES = Probe.values();
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(PROBES.length * BUCKETS);
+
+    private volatile boolean enabled;
+
+    void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Start time for {@link #record}, or 0 when recording is off.
+     */
+    long start()
+    {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    void record(Probe probe, long start)
+    {
+        if (start == 0)
+        {
+            return;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        counts.incrementAndGet(probe.ordinal() * BUCKETS + bucketOf(Math.max(0, elapsed)));
+    }
+
+    static int bucketOf(long nanos)
+    {
+        if (nanos < SUB_BUCKETS)
+        {
+            return (int) nanos;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long bucketUpperBound(int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+        {
+            return bucket;
+        }
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1) << shift) - 1;
+    }
+
+    /**
+     * An interval between two snapshots. Each reader keeps its own, so readers do not
+     * disturb each other; a window is only used by one thread at a time.
+     */
+    static final class Window
+    {
+        private final long[] previous = new long[PROBES.length * BUCKETS];
+        private final long[] delta = new long[PROBES.length * BUCKETS];
+        private long previousNanos = System.nanoTime();
+        private long elapsedNanos;
+
+        long getCount(Probe probe)
+        {
+            long count = 0;
+            int base = probe.ordinal() * BUCKETS;
+            for (int i = 0; i < BUCKETS; i++)
+            {
+                count += delta[base + i];
+            }
+            return count;
+        }
+
+        double getRate(Probe probe)
+        {
+            return elapsedNanos == 0 ? 0 : getCount(probe) * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Duration in nanoseconds that the given fraction of calls finished within.
+         */
+        long getPercentile(Probe probe, double fraction)
+        {
+            long count = getCount(probe);
+            if (count == 0)
+            {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(fraction * count));
+            int base = probe.ordinal() * BUCKETS;
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++)
+            {
+                seen += delta[base + i];
+                if (seen >= rank)
+                {
+                    return bucketUpperBound(i);
+                }
+            }
+            return 0;
+        }
+
+        long getMax(Probe probe)
+        {
+            int base = probe.ordinal() * BUCKETS;
+            for (int i = BUCKETS - 1; i >= 0; i--)
+            {
+                if (delta[base + i] != 0)
+                {
+                    return bucketUpperBound(i);
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Moves the window on to now.
+     */
+    void snapshot(Window window)
+    {
+        for (int i = 0; i < window.previous.length; i++)
+        {
+            long current = counts.get(i);
+            window.delta[i] = current - window.previous[i];
+            window.previous[i] = current;
+        }
+
+        long now = System.nanoTime();
+        window.elapsedNanos = now - window.previousNanos;
+        window.previousNanos = now;
+    }
+
+    /**
+     * One line per probe with calls, rate, p50, p99 and max.
+     */
+    static void appendSummary(StringBuilder sb, Window window, Probe probe)
+    {
+        sb.append(probe.getLabel()).append(": ")
+                .append(window.getCount(probe)).append(" calls, ")
+                .append(Math.round(window.getRate(probe))).append("/s, p50 ")
+                .append(formatMicros(window.getPercentile(probe, 0.5))).append(", p99 ")
+                .append(formatMicros(window.getPercentile(probe, 0.99))).append(", max ")
+                .append(formatMicros(window.getMax(probe)));
+    }
+
+    static String formatMicros(long nanos)
+    {
+        long tenths = (nanos + 50) / 100;
+        return (tenths / 10) + "." + (tenths % 10) + "us";
+    }
+
+    static Probe[] probes()
+    {
+        return PROBES;
+    }
+}
@@ -0,0 +1,79 @@
+package com.hitcounter;
+
+import net.runelite.client.ui.overlay.OverlayPanel;
+import net.runelite.client.ui.overlay.OverlayPosition;
+import net.runelite.client.ui.overlay.components.LayoutableRenderableEntity;
+import net.runelite.client.ui.overlay.components.LineComponent;
+import net.runelite.client.ui.overlay.components.TitleComponent;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * Debug panel with the rate, p50, p99 and max of each {@link HitCounterMetrics} probe.
+ * The figures cover the last second and the lines are only rebuilt once a second.
+ * The last line counts hits dropped by the analytics queue and the hit log since startup.
+ */
+@Singleton
+public class HitCounterMetricsOverlay extends OverlayPanel
+{
+    private static final long REFRESH_NANOS = 1_000_000_000L;
+
+    private static final Dimension PANEL_SIZE = new Dimension(260, 0);
+
+    private final HitCounterPlugin plugin;
+    private final HitCounterMetrics metrics;
+
+    private final HitCounterMetrics.Window window = new HitCounterMetrics.Window();
+
+    private long lastRefresh;
+
+    @Inject
+    public HitCounterMetricsOverlay(HitCounterPlugin plugin, HitCounterMetrics metrics)
+    {
+        super(plugin);
+        setPosition(OverlayPosition.TOP_LEFT);
+        this.plugin = plugin;
+        this.metrics = metrics;
+
+        setClearChildren(false);
+        panelComponent.setPreferredSize(PANEL_SIZE);
+        panelComponent.getChildren().add(TitleComponent.builder().text("Hit Counter timings").build());
+    }
+
+    @Override
+    public Dimension render(Graphics2D graphics)
+    {
+        long now = System.nanoTime();
+        if (now - lastRefresh >= REFRESH_NANOS)
+        {
+            lastRefresh = now;
+            refresh();
+        }
+
+        return super.render(graphics);
+    }
+
+    private void refresh()
+    {
+        metrics.snapshot(window);
+
+        List<LayoutableRenderableEntity> children = panelComponent.getChildren();
+        children.subList(1, children.size()).clear();
+        children.add(LineComponent.builder().left("Probe").right("rate  p50  p99  max").build());
+
+        for (HitCounterMetrics.Probe probe : HitCounterMetrics.probes())
+        {
+            String right = Math.round(window.getRate(probe)) + "/s  " +
+                    HitCounterMetrics.formatMicros(window.getPercentile(probe, 0.5)) + "  " +
+                    HitCounterMetrics.formatMicros(window.getPercentile(probe, 0.99)) + "  " +
+                    HitCounterMetrics.formatMicros(window.getMax(probe));
+            children.add(LineComponent.builder().left(probe.getLabel()).right(right).build());
+        }
+
+        children.add(LineComponent.builder().left("Dropped hits")
+                .right("queue " + plugin.getHitEvents().getDropped() + "  log " + plugin.getDroppedLogRecords()).build());
+    }
+}
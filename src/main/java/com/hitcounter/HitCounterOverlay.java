@@ -1,13 +1,20 @@
 package com.hitcounter;
 
+import net.runelite.api.Client;
+import net.runelite.api.Point;
 import net.runelite.client.ui.overlay.OverlayPanel;
+import net.runelite.client.ui.overlay.components.LayoutableRenderableEntity;
 import net.runelite.client.ui.overlay.OverlayPosition;
 import net.runelite.client.ui.overlay.components.LineComponent;
 import net.runelite.client.ui.overlay.components.TitleComponent;
+import net.runelite.client.ui.overlay.tooltip.Tooltip;
+import net.runelite.client.ui.overlay.tooltip.TooltipManager;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.awt.*;
+import java.util.List;
+import java.util.Locale;
 
 import static net.runelite.api.MenuAction.RUNELITE_OVERLAY;
 
@@ -15,54 +22,194 @@ import static net.runelite.api.MenuAction.RUNELITE_OVERLAY;
 public class HitCounterOverlay extends OverlayPanel
 {
     private final HitCounterPlugin plugin;
-    private final HitCounterConfig config;
+    private final Client client;
+    private final TooltipManager tooltipManager;
+    private final HitCounterMetrics metrics;
 
     private static final Dimension PANEL_SIZE = new Dimension(130, 0);
 
+    private static final int COUNT_LINE = 1;
+
+    /**
+     * Count, colour and settings (count mode, digit rendering) the panel children were last built for.
+     * The children are kept between frames and only rebuilt when these change.
+     */
+    private int renderedCount = -1;
+    private Color renderedColor;
+    private HitCounterSettings renderedSettings;
+
+    /**
+     * Count line used instead of a {@link LineComponent} when pre-rendered digits are on.
+     */
+    private final GlyphLineComponent glyphCountLine = new GlyphLineComponent();
+
+    /**
+     * Rates, personal records, party share version and target the lines below the count were last built for.
+     */
+    private HitCounterConfig.RateWindow renderedRateWindow = HitCounterConfig.RateWindow.OFF;
+    private double renderedHitsPerMinute;
+    private double renderedDamagePerTick;
+    private int renderedBest = PersonalRecords.NO_BEST;
+    private int renderedKills;
+    private double renderedAverage;
+    private int renderedPartyVersion = -1;
+    private int renderedPartyTarget = HitCounterEngine.NO_TARGET;
+
     @Inject
-    public HitCounterOverlay(HitCounterPlugin plugin, HitCounterConfig config)
+    public HitCounterOverlay(HitCounterPlugin plugin, Client client, TooltipManager tooltipManager, HitCounterMetrics metrics)
     {
         super(plugin);
         setPosition(OverlayPosition.ABOVE_CHATBOX_RIGHT);
         this.plugin = plugin;
-        this.config = config;
+        this.client = client;
+        this.tooltipManager = tooltipManager;
+        this.metrics = metrics;
         addMenuEntry(RUNELITE_OVERLAY, "Reset", "Hit counter", e -> plugin.resetCounter());
+        addMenuEntry(RUNELITE_OVERLAY, "Export CSV", "Hit counter", e -> plugin.export(ExportSnapshot.Format.CSV));
+        addMenuEntry(RUNELITE_OVERLAY, "Export JSON", "Hit counter", e -> plugin.export(ExportSnapshot.Format.JSON));
+
+        setClearChildren(false);
+        panelComponent.setPreferredSize(PANEL_SIZE);
+        panelComponent.getChildren().add(TitleComponent.builder().text("Hit Counter").build());
+        panelComponent.getChildren().add(buildCountLine(HitCounterConfig.CountMode.HITSPLATS, 0, Color.WHITE));
     }
 
     @Override
     public Dimension render(Graphics2D graphics)
     {
-        if (config.displayMode() != HitCounterConfig.DisplayMode.OVERLAY)
+        long start = metrics.start();
+        Dimension dimension = renderPanel(graphics);
+        metrics.record(HitCounterMetrics.Probe.OVERLAY, start);
+        return dimension;
+    }
+
+    private Dimension renderPanel(Graphics2D graphics)
+    {
+        HitCounterState state = plugin.getState();
+        HitCounterSettings settings = state.getSettings();
+        if (settings.getDisplayMode() != HitCounterConfig.DisplayMode.OVERLAY)
         {
             /**
              * Exit early if display mode is not set to overlay
              */
+            invalidate();
             return null;
         }
 
-        if (config.displayOnlyOnUpdate() && plugin.isOutOfCombat())
+        if (settings.isDisplayOnlyOnUpdate() && state.isOutOfCombat())
         {
             /**
              * Only show if user is in combat
              */
+            invalidate();
             return null;
         }
 
-        panelComponent.setPreferredSize(PANEL_SIZE);
+        int attackCount = state.getCount();
+        Color numberColor = state.getCounterColor();
 
-        int attackCount = plugin.getAttackCount();
+        if (attackCount != renderedCount || numberColor != renderedColor || settings != renderedSettings)
+        {
+            panelComponent.getChildren().set(COUNT_LINE, settings.isGlyphCounter()
+                    ? buildGlyphCountLine(settings, attackCount, numberColor)
+                    : buildCountLine(settings.getCountMode(), attackCount, numberColor));
+            renderedCount = attackCount;
+            renderedColor = numberColor;
+            renderedSettings = settings;
+        }
 
-        Color numberColor = config.defaultColor();
-        if (config.triggerEffectMode() == HitCounterConfig.TriggerEffectMode.HIGHLIGHT &&
-                config.triggerHitCount() > 0 &&
-                attackCount == config.triggerHitCount())
+        PartyHitShare partyShare = plugin.getPartyShare();
+        int target = state.getTargetIndex();
+        if (settings.getRateWindow() != renderedRateWindow || state.getHitsPerMinute() != renderedHitsPerMinute
+                || state.getDamagePerTick() != renderedDamagePerTick || state.getPersonalBest() != renderedBest
+                || state.getPersonalKills() != renderedKills || state.getPersonalAverage() != renderedAverage
+                || partyShare.getVersion() != renderedPartyVersion || target != renderedPartyTarget)
         {
-            numberColor = config.triggerColor();
+            buildExtraLines(state, partyShare.getMembersOn(target));
+            renderedRateWindow = settings.getRateWindow();
+            renderedHitsPerMinute = state.getHitsPerMinute();
+            renderedDamagePerTick = state.getDamagePerTick();
+            renderedBest = state.getPersonalBest();
+            renderedKills = state.getPersonalKills();
+            renderedAverage = state.getPersonalAverage();
+            renderedPartyVersion = partyShare.getVersion();
+            renderedPartyTarget = target;
         }
 
-        panelComponent.getChildren().add(TitleComponent.builder().text("Hit Counter").build());
-        panelComponent.getChildren().add(LineComponent.builder().left("Hits:").right(String.valueOf(attackCount)).rightColor(numberColor).build());
+        Dimension dimension = super.render(graphics);
+        addDamageTooltip();
+        return dimension;
+    }
 
-        return super.render(graphics);
+    /**
+     * Shows the damage stats while the mouse is over the panel.
+     */
+    private void addDamageTooltip()
+    {
+        Point mouse = client.getMouseCanvasPosition();
+        if (mouse != null && getBounds().contains(mouse.getX(), mouse.getY()))
+        {
+            tooltipManager.add(new Tooltip(plugin.getDamageTooltip()));
+        }
+    }
+
+    /**
+     * Forces the children to be rebuilt on the next visible frame.
+     */
+    private void invalidate()
+    {
+        renderedCount = -1;
+        renderedColor = null;
+        renderedSettings = null;
+        renderedPartyVersion = -1;
+    }
+
+    /**
+     * Replaces the lines after the count with the hit rates and personal records, if shown,
+     * and one line per party member on the same target.
+     */
+    private void buildExtraLines(HitCounterState state, List<PartyHitShare.Member> members)
+    {
+        List<LayoutableRenderableEntity> children = panelComponent.getChildren();
+        children.subList(COUNT_LINE + 1, children.size()).clear();
+        if (state.getSettings().getRateWindow() != HitCounterConfig.RateWindow.OFF)
+        {
+            children.add(LineComponent.builder().left("Hits/min:").right(formatRate(state.getHitsPerMinute())).build());
+            children.add(LineComponent.builder().left("Dmg/tick:").right(formatRate(state.getDamagePerTick())).build());
+        }
+
+        int personalBest = state.getPersonalBest();
+        if (personalBest != PersonalRecords.NO_BEST)
+        {
+            children.add(LineComponent.builder().left("Best:").right(CounterText.of(personalBest)).build());
+            children.add(LineComponent.builder().left("Avg:").right(formatRate(state.getPersonalAverage())).build());
+            children.add(LineComponent.builder().left("Kills:").right(CounterText.of(state.getPersonalKills())).build());
+        }
+        for (PartyHitShare.Member member : members)
+        {
+            children.add(LineComponent.builder().left(member.getName()).right(CounterText.of(member.getCount())).build());
+        }
+    }
+
+    private static LineComponent buildCountLine(HitCounterConfig.CountMode mode, int attackCount, Color numberColor)
+    {
+        return LineComponent.builder().left(countLabel(mode)).right(CounterText.of(attackCount)).rightColor(numberColor).build();
+    }
+
+    private GlyphLineComponent buildGlyphCountLine(HitCounterSettings settings, int attackCount, Color numberColor)
+    {
+        glyphCountLine.setColors(settings.getDefaultColor(), settings.getTriggerColor());
+        glyphCountLine.set(countLabel(settings.getCountMode()), attackCount, numberColor);
+        return glyphCountLine;
+    }
+
+    static String formatRate(double rate)
+    {
+        return String.format(Locale.ROOT, "%.1f", rate);
+    }
+
+    private static String countLabel(HitCounterConfig.CountMode mode)
+    {
+        return mode == HitCounterConfig.CountMode.ATTACKS ? "Attacks:" : "Hits:";
     }
 }
\ No newline at end of file
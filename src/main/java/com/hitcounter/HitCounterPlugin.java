@@ -1,34 +1,39 @@
 package com.hitcounter;
 
+import com.google.inject.Binder;
 import com.google.inject.Provides;
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.*;
 import net.runelite.api.events.*;
+import net.runelite.client.RuneLite;
 import net.runelite.client.callback.ClientThread;
 import net.runelite.client.eventbus.Subscribe;
 import net.runelite.client.events.ConfigChanged;
-import net.runelite.client.game.SpriteManager;
 import net.runelite.client.input.KeyManager;
 import net.runelite.client.plugins.Plugin;
 import net.runelite.client.plugins.PluginDescriptor;
 import net.runelite.client.config.ConfigManager;
 import net.runelite.client.ui.overlay.OverlayManager;
-import net.runelite.client.ui.overlay.infobox.InfoBoxManager;
 import net.runelite.client.util.HotkeyListener;
 
 import javax.inject.Inject;
-import java.awt.image.BufferedImage;
-import java.time.Instant;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Objects;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 //TODO
-// 1. Make sure you can't duplicate infobox
-// 2. Test what happens when local player dies
-// 3. Find better sound trigger
+// 1. Test what happens when local player dies
 
 @PluginDescriptor(
         name = "Hit Counter",
@@ -36,6 +41,7 @@ import java.util.stream.Collectors;
         tags = {"combat", "pvm", "boss", "hit", "infobox", "monster", "overlay", "attack", "damage", "track"},
         enabledByDefault = false
 )
+@Slf4j
 public class HitCounterPlugin extends Plugin
 {
 
@@ -54,33 +60,111 @@ public class HitCounterPlugin extends Plugin
     @Inject
     private KeyManager keyManager;
 
-    @Getter
     private NPC lastInteractedNpc;
 
-    private Instant lastAttackTime;
+    @Inject
+    private HitCounterInfoBoxController infoBoxController;
 
     @Inject
-    private InfoBoxManager infoBoxManager;
+    private ClientThread clientThread;
 
-    private HitCounterInfoBox infoBox;
+    /**
+     * Combat state the infobox visibility was last applied for.
+     */
+    private boolean inCombat;
 
     @Inject
-    private SpriteManager spriteManager;
+    private HitCounterFlash flashOverlay;
 
     @Inject
-    private ClientThread clientThread;
+    private ScheduledExecutorService executor;
 
     @Inject
-    private HitCounterFlash flashOverlay;
+    private TriggerSoundPlayer soundPlayer;
+
+    @Inject
+    private HitCounterMetrics metrics;
+
+    @Inject
+    private HitCounterMetricsOverlay metricsOverlay;
+
+    @Inject
+    @Getter
+    private PartyHitShare partyShare;
+
+    private HitLogWriter hitLog;
 
+    /**
+     * Counted hits handed from the client thread to the analytics worker, which feeds the hit log.
+     */
     @Getter
-    private int attackCount = 0;
+    private final HitEventRing hitEvents = new HitEventRing(HIT_EVENT_CAPACITY);
+
+    private HitEventWorker hitWorker;
+
+    private PersonalRecords records;
+
+    private ScheduledFuture<?> metricsLogTask;
+
+    /**
+     * Interval of the timings log line, only touched by the executor.
+     */
+    private final HitCounterMetrics.Window metricsLogWindow = new HitCounterMetrics.Window();
 
-    private static final int RED_HITSPLAT = 1359;
+    private static final long METRICS_LOG_INTERVAL_SECONDS = 60;
 
-    private static final int FLASH_DURATION_TICKS = 2;
+    private static final DateTimeFormatter EXPORT_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
 
-    private static final int OUT_OF_COMBAT_TICKS = 6;
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
+    private static final int HIT_EVENT_CAPACITY = 4096;
+
+    /**
+     * Kills of the target's NPC type the tooltip's median hits per kill is taken over.
+     */
+    private static final int MEDIAN_KILLS = 50;
+
+    private final File snapshotFile = new File(RuneLite.RUNELITE_DIR, "hit-counter/state.bin");
+
+    private boolean flashOverlayAdded;
+
+    /**
+     * Equipped weapon and attack style, cached from their change events so the hitsplat path only reads fields.
+     */
+    private int weaponId = HitCube.UNARMED;
+    private int attackStyle;
+
+    /**
+     * Counting, reset and trigger logic; the event handlers below feed it.
+     */
+    private final HitCounterEngine engine = new HitCounterEngine(this::onTrigger);
+
+    /**
+     * Config snapshot shared with the overlay and infobox, rebuilt on config change.
+     */
+    @Getter
+    private volatile HitCounterSettings settings;
+
+    /**
+     * What the overlay and infobox display, republished whenever it changes on the client thread.
+     */
+    @Getter
+    private volatile HitCounterState state;
+
+    /**
+     * Damage stats tooltip and the stats version, target, weapon and kill count it was built for.
+     */
+    private String damageTooltip = "";
+    private int damageTooltipVersion = -1;
+    private int damageTooltipTarget = HitCounterEngine.NO_TARGET;
+    private int damageTooltipWeapon = HitCube.UNARMED;
+    private long damageTooltipKills;
+
+    @Override
+    public void configure(Binder binder)
+    {
+        binder.bind(PartyTransport.class).to(RuneLitePartyTransport.class);
+    }
 
     @Provides
     HitCounterConfig provideConfig(ConfigManager configManager) {
@@ -90,105 +174,291 @@ public class HitCounterPlugin extends Plugin
     private final HotkeyListener resetCounterHotkey = new HotkeyListener(() -> config.resetCounterKey()) {
         @Override
         public void hotkeyPressed() {
-            resetCounter();
+            clientThread.invokeLater(HitCounterPlugin.this::resetCounter);
         }
     };
 
     @Override
     protected void startUp() throws Exception
     {
-        attackCount = 0;
         lastInteractedNpc = null;
-        lastAttackTime = null;
-
-        overlayManager.add(overlay);
-        overlayManager.add(flashOverlay);
+        inCombat = false;
+        hitLog = new HitLogWriter(new File(RuneLite.RUNELITE_DIR, "hit-counter/hits"), executor);
+        hitWorker = new HitEventWorker(hitEvents, hitLog);
+        hitWorker.start();
+        records = new PersonalRecords(new File(RuneLite.RUNELITE_DIR, "hit-counter/records"), executor,
+                clientThread::invokeLater);
+        loadSettings(HitCounterSettings.from(config));
+        engine.clear();
+        publishState();
+        restoreSnapshot();
+
+        // The flash overlay is added on the first flash, the infobox and its sprite when first shown
+        updateDisplayMode();
         keyManager.registerKeyListener(resetCounterHotkey);
+        updateMetrics();
 
-        if (config.displayMode() == HitCounterConfig.DisplayMode.INFOBOX)
-        {
-            BufferedImage image = spriteManager.getSprite(RED_HITSPLAT, 0);
-            if (image != null)
-            {
-                infoBox = new HitCounterInfoBox(image, this, config);
-                infoBoxManager.addInfoBox(infoBox);
-            }
-        }
+        clientThread.invokeLater(this::updateInfoBoxVisibility);
+        clientThread.invokeLater(this::loadLoadout);
     }
 
     @Override
     protected void shutDown() throws Exception
     {
+        saveSnapshot();
         lastInteractedNpc = null;
-        attackCount = 0;
-        lastAttackTime = null;
+        engine.clear();
+        publishState();
+        records.clear();
+        // Drains the hits still queued into the open log, then the worker closes the log itself
+        hitWorker.stop();
+        soundPlayer.stop();
 
         overlayManager.remove(overlay);
         overlayManager.remove(flashOverlay);
+        flashOverlayAdded = false;
         keyManager.unregisterKeyListener(resetCounterHotkey);
 
-        removeInfobox();
+        metrics.setEnabled(false);
+        overlayManager.remove(metricsOverlay);
+        stopMetricsLog();
+        partyShare.stop();
+
+        infoBoxController.unload();
+    }
+
+    @Subscribe
+    public void onConfigChanged(ConfigChanged event)
+    {
+        if (!event.getGroup().equals("attackcounter"))
+        {
+            return;
+        }
+
+        // Posted on the thread that changed the config, usually the Swing EDT. Only the config is read here;
+        // the engine, records, party and published state belong to the client thread.
+        HitCounterSettings settings = HitCounterSettings.from(config);
+        boolean displayModeChanged = event.getKey().equals("displayMode");
+        clientThread.invoke(() ->
+        {
+            loadSettings(settings);
+
+            if (displayModeChanged)
+            {
+                updateDisplayMode();
+            }
+
+            updateMetrics();
+            updateInfoBoxVisibility();
+        });
     }
 
-    private void removeInfobox()
+    private void updateDisplayMode()
     {
-        if (infoBox != null)
+        switch (settings.getDisplayMode())
         {
-            infoBoxManager.removeInfoBox(infoBox);
-            infoBox = null;
+            case INFOBOX:
+                overlayManager.remove(overlay);
+                break;
+
+            case OVERLAY:
+            default:
+                overlayManager.add(overlay);
+                break;
         }
     }
 
-    private void removeInfoboxIfActive()
+    @Subscribe
+    public void onGameStateChanged(GameStateChanged event)
     {
-        if (config.displayMode() == HitCounterConfig.DisplayMode.INFOBOX && infoBox != null)
+        if (event.getGameState() == GameState.LOGIN_SCREEN)
         {
-            infoBoxManager.removeInfoBox(infoBox);
-            infoBox = null;
+            saveSnapshot();
         }
     }
 
     @Subscribe
-    public void onConfigChanged(ConfigChanged event)
+    public void onItemContainerChanged(ItemContainerChanged event)
     {
-        if (!event.getGroup().equals("attackcounter"))
+        if (event.getContainerId() == InventoryID.EQUIPMENT.getId())
         {
-            return;
+            weaponId = weaponOf(event.getItemContainer());
+            engine.setLoadout(weaponId, attackStyle);
         }
+    }
 
-        if (event.getKey().equals("displayMode"))
+    @Subscribe
+    public void onVarbitChanged(VarbitChanged event)
+    {
+        if (event.getVarpId() == VarPlayer.ATTACK_STYLE)
         {
-            switch (config.displayMode())
-            {
-                case INFOBOX:
-                    boolean shouldShow = !config.displayOnlyOnUpdate() || !isOutOfCombat();
+            attackStyle = event.getValue();
+            engine.setLoadout(weaponId, attackStyle);
+        }
+    }
 
-                    if (shouldShow && infoBox == null)
-                    {
-                        clientThread.invokeLater(() ->
-                        {
-                            BufferedImage image = spriteManager.getSprite(RED_HITSPLAT, 0);
-                            if (image != null)
-                            {
-                                infoBox = new HitCounterInfoBox(image, this, config);
-                                infoBoxManager.addInfoBox(infoBox);
-                            }
-                        });
-                    }
-                    overlayManager.remove(overlay);
-                    break;
-
-                case OVERLAY:
-                default:
-                    removeInfobox();
-                    overlayManager.add(overlay);
-                    break;
+    /**
+     * Reads the weapon and attack style once, since their change events only fire on a change.
+     */
+    private void loadLoadout()
+    {
+        weaponId = weaponOf(client.getItemContainer(InventoryID.EQUIPMENT));
+        attackStyle = client.getVarpValue(VarPlayer.ATTACK_STYLE);
+        engine.setLoadout(weaponId, attackStyle);
+    }
+
+    private static int weaponOf(ItemContainer equipment)
+    {
+        Item weapon = equipment == null ? null : equipment.getItem(EquipmentInventorySlot.WEAPON.getSlotIdx());
+        return weapon == null || weapon.getId() < 0 ? HitCube.UNARMED : weapon.getId();
+    }
+
+    /**
+     * Saves the counters on the executor, for {@link #restoreSnapshot()} on the next start-up.
+     */
+    private void saveSnapshot()
+    {
+        CounterSnapshot snapshot = CounterSnapshot.capture(engine, System.currentTimeMillis());
+        executor.execute(() -> snapshot.write(snapshotFile));
+    }
+
+    /**
+     * Reads the saved counters on the executor and puts them back on the client thread,
+     * unless something was counted in the meantime.
+     */
+    private void restoreSnapshot()
+    {
+        executor.execute(() ->
+        {
+            CounterSnapshot snapshot = CounterSnapshot.read(snapshotFile);
+            if (snapshot == null || snapshot.isExpired(System.currentTimeMillis()))
+            {
+                return;
             }
+
+            clientThread.invokeLater(() ->
+            {
+                if (!engine.isEmpty())
+                {
+                    return;
+                }
+
+                engine.tick(client.getTickCount());
+                snapshot.restore(engine, System.currentTimeMillis());
+                updateCombatState();
+                publishState();
+            });
+        });
+    }
+
+    /**
+     * Turns timing collection, the timings overlay and the timings log line on or off.
+     */
+    private void updateMetrics()
+    {
+        HitCounterSettings settings = this.settings;
+        metrics.setEnabled(settings.isMetricsOverlay() || settings.isMetricsLog());
+
+        if (settings.isMetricsOverlay())
+        {
+            overlayManager.add(metricsOverlay);
+        }
+        else
+        {
+            overlayManager.remove(metricsOverlay);
+        }
+
+        if (settings.isMetricsLog() && metricsLogTask == null)
+        {
+            metrics.snapshot(metricsLogWindow);
+            metricsLogTask = executor.scheduleAtFixedRate(this::logMetrics,
+                    METRICS_LOG_INTERVAL_SECONDS, METRICS_LOG_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+        else if (!settings.isMetricsLog())
+        {
+            stopMetricsLog();
+        }
+    }
+
+    private void stopMetricsLog()
+    {
+        if (metricsLogTask != null)
+        {
+            metricsLogTask.cancel(false);
+            metricsLogTask = null;
+        }
+    }
+
+    private void logMetrics()
+    {
+        metrics.snapshot(metricsLogWindow);
+
+        StringBuilder sb = new StringBuilder("Hit counter timings");
+        for (HitCounterMetrics.Probe probe : HitCounterMetrics.probes())
+        {
+            sb.append(" | ");
+            HitCounterMetrics.appendSummary(sb, metricsLogWindow, probe);
+        }
+        sb.append(" | dropped hits ").append(hitEvents.getDropped())
+                .append(", log ").append(hitLog.getDroppedRecords());
+        log.info(sb.toString());
+    }
+
+    /**
+     * Applies a config snapshot to the engine, hit log, records, party share and sound player.
+     */
+    private void loadSettings(HitCounterSettings settings)
+    {
+        this.settings = settings;
+        engine.configure(settings);
+        publishState();
+
+        if (settings.isRecordHitLog())
+        {
+            hitLog.open();
+        }
+        else
+        {
+            hitLog.close();
+        }
+
+        if (!settings.isTrackPersonalRecords())
+        {
+            records.flush();
+        }
+
+        if (settings.isShareWithParty())
+        {
+            partyShare.start();
+        }
+        else
+        {
+            partyShare.stop();
+        }
+
+        String soundFile = settings.getSoundFile();
+        if (soundFile.isEmpty())
+        {
+            soundPlayer.load(null, settings.getSoundVolume());
+        }
+        else
+        {
+            // The audio thread is only started once there is a sound to play
+            soundPlayer.start();
+            File file = new File(soundFile);
+            soundPlayer.load(file.isAbsolute() ? file : new File(RuneLite.RUNELITE_DIR, soundFile), settings.getSoundVolume());
         }
     }
 
     @Subscribe
     public void onHitsplatApplied(HitsplatApplied event)
+    {
+        long start = metrics.start();
+        handleHitsplat(event);
+        metrics.record(HitCounterMetrics.Probe.HITSPLAT, start);
+    }
+
+    private void handleHitsplat(HitsplatApplied event)
     {
         Actor actor = event.getActor();
         Hitsplat hitsplat = event.getHitsplat();
@@ -198,52 +468,69 @@ public class HitCounterPlugin extends Plugin
         }
 
         NPC npc = (NPC) actor;
-        Set<String> excludedNames = getIgnoredNpcNames(config.excludedNpcNames());
-        if (excludedNames.contains(Objects.requireNonNull(npc.getName()).toLowerCase()))
+        if (!isCounted(settings.getHitFilter(), npc, hitsplat))
         {
             return;
         }
 
-        if (config.onlyCountSuccessfulHits() && hitsplat.getAmount() <= 0)
+        TriggerTable triggers = settings.getTriggerTable();
+        if (triggers.needsName(npc.getId()))
         {
-            return;
+            triggers.resolveName(npc.getId(), npc.getName());
         }
 
-        attackCount++;
-        lastInteractedNpc = npc;
-        lastAttackTime = Instant.now();
-
-        int triggerCount = config.triggerHitCount();
-        HitCounterConfig.AudioTriggerMode mode = config.triggerMode();
-
-        boolean shouldTrigger = triggerCount > 0 &&
-                ((mode == HitCounterConfig.AudioTriggerMode.EXACT && attackCount == triggerCount) ||
-                        (mode == HitCounterConfig.AudioTriggerMode.EVERY && attackCount % triggerCount == 0));
-
-        if (shouldTrigger)
+        final int tickCount = client.getTickCount();
+        engine.tick(tickCount);
+        if (engine.hitsplat(npc.getIndex(), npc.getId(), hitsplat.getHitsplatType(), hitsplat.getAmount()))
         {
-            switch (config.triggerEffectMode())
+            if (npc != lastInteractedNpc && settings.isTrackPersonalRecords())
             {
-                case SOUND:
-                    client.playSoundEffect(SoundEffectID.UI_BOOP, SoundEffectVolume.MEDIUM_HIGH);
-                    break;
-
-                case HIGHLIGHT:
-                    // Color will apply in render method
-                    break;
-
-                case FLASH:
-                    if (flashOverlay != null)
-                    {
-                        flashOverlay.trigger(config.triggerColor(), FLASH_DURATION_TICKS);
-                    }
-                    break;
+                // Starts reading the records for the new target
+                records.get(npc.getId());
             }
+            lastInteractedNpc = npc;
+            hitEvents.offer(tickCount, npc.getIndex(), npc.getId(), hitsplat.getHitsplatType(), hitsplat.getAmount(),
+                    engine.getLastHitCount());
+        }
+    }
+
+    private static boolean isCounted(HitFilter filter, NPC npc, Hitsplat hitsplat)
+    {
+        if (!filter.acceptsType(hitsplat.getHitsplatType()))
+        {
+            return false;
         }
 
-        if (config.resetAfterXHits() && attackCount >= config.resetHitCount())
+        // The name is only needed the first time an NPC id is seen
+        int npcId = npc.getId();
+        return filter.acceptsNpc(npcId, filter.isCached(npcId) ? null : npc.getName());
+    }
+
+    private void onTrigger(HitCounterConfig.TriggerEffectMode effect, int count)
+    {
+        switch (effect)
         {
-            resetCounter();
+            case SOUND:
+                if (!soundPlayer.play())
+                {
+                    client.playSoundEffect(SoundEffectID.UI_BOOP, SoundEffectVolume.MEDIUM_HIGH);
+                }
+                break;
+
+            case HIGHLIGHT:
+                // Color will apply in render method
+                break;
+
+            case FLASH:
+                if (!flashOverlayAdded)
+                {
+                    overlayManager.add(flashOverlay);
+                    flashOverlayAdded = true;
+                }
+                HitCounterSettings settings = this.settings;
+                flashOverlay.trigger(settings.getFlashStyle(), settings.getTriggerColor(),
+                        settings.getFlashDurationTicks(), settings.getFlashCurve());
+                break;
         }
     }
 
@@ -252,99 +539,277 @@ public class HitCounterPlugin extends Plugin
     {
         NPC npc = npcDespawned.getNpc();
 
-        if (npc.equals(lastInteractedNpc))
+        if (engine.despawn(npc.getIndex()))
         {
             lastInteractedNpc = null;
-
-            if (config.resetOnNpcDespawn())
-            {
-                resetCounter();
-            }
-            removeInfoboxIfActive();
         }
+        updateCombatState();
+        publishState();
     }
 
     @Subscribe
     public void onActorDeath(ActorDeath event)
     {
-        if (event.getActor() == client.getLocalPlayer())
+        if (event.getActor() instanceof NPC)
+        {
+            // Closes the kill at the killing blow rather than when the death animation ends
+            NPC npc = (NPC) event.getActor();
+            engine.kill(npc.getIndex(), npc.getName());
+
+            // Only deaths count, so leaving a fight never stores a partial kill as a best
+            if (settings.isTrackPersonalRecords())
+            {
+                recordKill(npc);
+                publishState();
+            }
+        }
+        else if (event.getActor() == client.getLocalPlayer())
         {
             lastInteractedNpc = null;
-            resetCounter();
-            removeInfoboxIfActive();
+            engine.death();
+            updateCombatState();
+            publishState();
         }
-
     }
 
     /**
-     * Ensures the InfoBox visibility dynamically updates based on combat state.
+     * Applies the hitsplats batched during the tick, and picks up the combat timeout expiring between hits.
      */
     @Subscribe
     public void onGameTick(GameTick tick)
     {
-        if (config.displayMode() != HitCounterConfig.DisplayMode.INFOBOX)
+        long start = metrics.start();
+        engine.tick(client.getTickCount());
+        engine.flush();
+        updateCombatState();
+        publishState();
+        shareCount();
+        records.tick(client.getTickCount());
+        metrics.record(HitCounterMetrics.Probe.GAME_TICK, start);
+    }
+
+    /**
+     * Sends the count on the current target to the party if it changed.
+     * Always the per-target count, whatever the scope, since that is what members compare.
+     */
+    private void shareCount()
+    {
+        if (partyShare.isStarted())
         {
-            return;
+            int target = engine.getTargetIndex();
+            boolean attacks = settings.getCountMode() == HitCounterConfig.CountMode.ATTACKS;
+            partyShare.tick(client.getTickCount(), target,
+                    target == HitCounterEngine.NO_TARGET ? 0 : engine.getTargetCount(target, attacks));
         }
+    }
 
-        boolean shouldBeVisible = !config.displayOnlyOnUpdate() || !isOutOfCombat();
-
-        if (!shouldBeVisible && infoBox != null)
+    /**
+     * Re-applies the infobox visibility when the player enters or leaves combat.
+     */
+    private void updateCombatState()
+    {
+        boolean nowInCombat = !isOutOfCombat();
+        if (nowInCombat != inCombat)
         {
-            infoBoxManager.removeInfoBox(infoBox);
-            infoBox = null;
+            inCombat = nowInCombat;
+            updateInfoBoxVisibility();
         }
-        else if (shouldBeVisible && infoBox == null)
+    }
+
+    private void updateInfoBoxVisibility()
+    {
+        HitCounterSettings settings = this.settings;
+        infoBoxController.setVisible(settings.getDisplayMode() == HitCounterConfig.DisplayMode.INFOBOX &&
+                (!settings.isDisplayOnlyOnUpdate() || inCombat));
+    }
+
+    /**
+     * Copies the counters, stats and kills on the client thread and writes them out on the executor:
+     * one JSON file, or one CSV file per table.
+     */
+    void export(ExportSnapshot.Format format)
+    {
+        ExportSnapshot snapshot = ExportSnapshot.capture(engine);
+        File directory = new File(RuneLite.RUNELITE_DIR, "hit-counter/exports");
+        String name = "hit-counter-" + LocalDateTime.now().format(EXPORT_TIME);
+
+        executor.execute(() ->
         {
-            BufferedImage image = spriteManager.getSprite(RED_HITSPLAT, 0);
-            if (image != null)
+            if (!directory.isDirectory() && !directory.mkdirs())
             {
-                infoBox = new HitCounterInfoBox(image, this, config);
-                infoBoxManager.addInfoBox(infoBox);
+                log.warn("Unable to create export directory {}", directory);
+                return;
             }
+
+            String exported;
+            try
+            {
+                if (format == ExportSnapshot.Format.JSON)
+                {
+                    exported = name + "." + format.getExtension();
+                    writeExport(new File(directory, exported), snapshot::writeJson);
+                }
+                else
+                {
+                    for (ExportSnapshot.CsvTable table : ExportSnapshot.CsvTable.values())
+                    {
+                        writeExport(new File(directory, name + "-" + table.getSuffix() + "." + format.getExtension()),
+                                out -> snapshot.writeCsv(table, out));
+                    }
+                    exported = name + "-*." + format.getExtension();
+                }
+            }
+            catch (IOException ex)
+            {
+                log.warn("Unable to export hit counter data to {}", directory, ex);
+                return;
+            }
+
+            clientThread.invokeLater(() -> client.addChatMessage(ChatMessageType.GAMEMESSAGE, "",
+                    "Hit counter exported to " + exported, null));
+        });
+    }
+
+    private interface ExportWriter
+    {
+        void write(Writer out) throws IOException;
+    }
+
+    private static void writeExport(File file, ExportWriter writer) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             Writer out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(),
+                     EXPORT_BUFFER_SIZE), EXPORT_BUFFER_SIZE))
+        {
+            writer.write(out);
         }
     }
 
+    int getDroppedLogRecords()
+    {
+        return hitLog.getDroppedRecords();
+    }
+
     void resetCounter()
     {
-        attackCount = 0;
-        lastAttackTime = Instant.now();
+        engine.reset();
+        updateCombatState();
+        publishState();
     }
 
     /**
-     * Parses a comma-separated list of NPC names from the config,
-     * trims and lowercases them for case-insensitive comparison.
+     * Adds the kill of an NPC that died after the player counted hits on it to its personal records.
      */
-    private Set<String> getIgnoredNpcNames(String names)
+    private void recordKill(NPC npc)
     {
-        if (names == null || names.trim().isEmpty())
+        // Apply the hits batched this tick before reading the counts
+        engine.flush();
+
+        int hits = engine.getTargetCount(npc.getIndex(), false);
+        if (hits > 0)
         {
-            return Collections.emptySet();
+            records.recordKill(npc.getId(), hits, engine.getTargetCount(npc.getIndex(), true), client.getTickCount());
         }
+    }
 
-        return Arrays.stream(names.split(","))
-                .map(String::trim)
-                .filter(s -> !s.isEmpty())
-                .map(String::toLowerCase)
-                .collect(Collectors.toSet());
+    /**
+     * Publishes a new {@link HitCounterState} if anything displayed changed.
+     */
+    private void publishState()
+    {
+        state = HitCounterState.capture(state, engine, lastInteractedNpc, getPersonalRecords());
     }
 
     /**
-     * Determines if the player is considered "out of combat"
-     * based on time elapsed since last hit.
+     * Records of the last interacted NPC, if shown and already held.
      */
-    public boolean isOutOfCombat()
+    private PersonalRecords.Record getPersonalRecords()
     {
-        if (lastInteractedNpc == null)
+        if (lastInteractedNpc == null || !settings.isTrackPersonalRecords())
         {
-            return true;
+            return null;
         }
 
-        if (lastAttackTime == null)
+        return records.peek(lastInteractedNpc.getId());
+    }
+
+    /**
+     * The count to display: hits on the current target or across all targets,
+     * depending on the configured scope, as of the last published state.
+     */
+    public int getAttackCount()
+    {
+        return state.getCount();
+    }
+
+    /**
+     * Damage statistics for the current target and the session, plus the kills of and hits with the current
+     * weapon on the target's NPC type, rebuilt only when they change.
+     */
+    String getDamageTooltip()
+    {
+        DamageStats stats = engine.getDamageStats();
+        int target = engine.getTargetIndex();
+        long killsRecorded = engine.getKills().getRecorded();
+        if (stats.getVersion() == damageTooltipVersion && target == damageTooltipTarget && weaponId == damageTooltipWeapon
+                && killsRecorded == damageTooltipKills)
         {
-            return true;
+            return damageTooltip;
         }
 
-        return Instant.now().isAfter(lastAttackTime.plusSeconds(OUT_OF_COMBAT_TICKS));
+        StringBuilder sb = new StringBuilder();
+        int slot = target == HitCounterEngine.NO_TARGET ? DamageStats.NO_SLOT : stats.slotOf(target);
+        if (slot != DamageStats.NO_SLOT)
+        {
+            sb.append("Target: ");
+            stats.appendSummary(sb, slot);
+            sb.append("</br>");
+        }
+        sb.append("Session: ");
+        stats.appendSummary(sb, DamageStats.SESSION);
+
+        int npcId = target == HitCounterEngine.NO_TARGET ? HitCounterEngine.NO_TARGET : engine.getTargetNpcId(target);
+        if (npcId != HitCounterEngine.NO_TARGET)
+        {
+            KillHistory kills = engine.getKills();
+            int killCount = kills.getKills(npcId);
+            if (killCount > 0)
+            {
+                // Medians of an even number of kills can end in .5
+                double median = kills.getMedianHits(npcId, MEDIAN_KILLS);
+                sb.append("</br>Kills: ").append(killCount).append(", median of last ")
+                        .append(Math.min(killCount, MEDIAN_KILLS)).append(": ");
+                if (median == Math.rint(median))
+                {
+                    sb.append((long) median);
+                }
+                else
+                {
+                    sb.append(median);
+                }
+                sb.append(" hits");
+            }
+
+            HitCube cube = engine.getCube();
+            int weaponHits = cube.getHits(npcId, weaponId, HitCube.ANY, HitCube.ANY);
+            if (weaponHits > 0)
+            {
+                sb.append("</br>This weapon on this NPC: ").append(weaponHits).append(" hits, ")
+                        .append(cube.getDamage(npcId, weaponId, HitCube.ANY, HitCube.ANY)).append(" damage");
+            }
+        }
+
+        damageTooltip = sb.toString();
+        damageTooltipVersion = stats.getVersion();
+        damageTooltipTarget = target;
+        damageTooltipWeapon = weaponId;
+        damageTooltipKills = killsRecorded;
+        return damageTooltip;
+    }
+
+    public boolean isOutOfCombat()
+    {
+        return engine.isOutOfCombat();
     }
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.hitcounter;
+
+import lombok.Getter;
+
+import java.awt.*;
+
+/**
+ * Effectively immutable snapshot of {@link HitCounterConfig}.
+ * Rebuilt only when the config changes so the hitsplat and render paths
+ * never go through the config proxy. The fields never change, but the hit
+ * filter's NPC verdicts and the trigger table's NPC name groups are caches
+ * that fill lazily on the client thread.
+ */
+@Getter
+public final class HitCounterSettings
+{
+    private final boolean resetOnNpcDespawn;
+    private final boolean resetAfterXHits;
+    private final int resetHitCount;
+
+    private final HitCounterConfig.DisplayMode displayMode;
+    private final boolean displayOnlyOnUpdate;
+    private final boolean onlyCountSuccessfulHits;
+    private final HitFilter hitFilter;
+    private final HitCounterConfig.CounterScope counterScope;
+    private final HitCounterConfig.CountMode countMode;
+    private final boolean shareWithParty;
+    private final boolean glyphCounter;
+    private final HitCounterConfig.RateWindow rateWindow;
+
+    private final int triggerHitCount;
+    private final HitCounterConfig.TriggerEffectMode triggerEffectMode;
+    private final HitCounterConfig.AudioTriggerMode triggerMode;
+    private final Color triggerColor;
+    private final Color defaultColor;
+    private final HitCounterConfig.FlashStyle flashStyle;
+    private final HitCounterConfig.FadeCurve flashCurve;
+    private final int flashDurationTicks;
+    private final TriggerTable triggerTable;
+    private final String soundFile;
+    private final int soundVolume;
+
+    private final boolean recordHitLog;
+    private final boolean trackPersonalRecords;
+
+    private final boolean metricsOverlay;
+    private final boolean metricsLog;
+
+    private HitCounterSettings(HitCounterConfig config)
+    {
+        resetOnNpcDespawn = config.resetOnNpcDespawn();
+        resetAfterXHits = config.resetAfterXHits();
+        resetHitCount = config.resetHitCount();
+
+        displayMode = config.displayMode();
+        displayOnlyOnUpdate = config.displayOnlyOnUpdate();
+        onlyCountSuccessfulHits = config.onlyCountSuccessfulHits();
+        hitFilter = HitFilter.compile(config.includedNpcs(), config.excludedNpcNames());
+        counterScope = config.counterScope();
+        countMode = config.countMode();
+        shareWithParty = config.shareWithParty();
+        glyphCounter = config.glyphCounter();
+        rateWindow = config.rateWindow();
+
+        triggerHitCount = config.triggerHitCount();
+        triggerEffectMode = config.triggerEffectMode();
+        triggerMode = config.triggerMode();
+        triggerColor = config.triggerColor();
+        defaultColor = config.defaultColor();
+        flashStyle = config.flashStyle();
+        flashCurve = config.flashCurve();
+        flashDurationTicks = config.flashDuration();
+        triggerTable = TriggerTable.compile(config.triggerRules(), triggerHitCount, triggerMode, triggerEffectMode);
+        soundFile = config.soundFile().trim();
+        soundVolume = config.soundVolume();
+
+        recordHitLog = config.recordHitLog();
+        trackPersonalRecords = config.trackPersonalRecords();
+
+        metricsOverlay = config.metricsOverlay();
+        metricsLog = config.metricsLog();
+    }
+
+    public static HitCounterSettings from(HitCounterConfig config)
+    {
+        return new HitCounterSettings(config);
+    }
+
+    /**
+     * Color the counter should be drawn in, given whether a highlight rule matches.
+     */
+    public Color getCounterColor(boolean highlighted)
+    {
+        return highlighted ? triggerColor : defaultColor;
+    }
+}
@@ -0,0 +1,126 @@
+package com.hitcounter;
+
+import lombok.Getter;
+import net.runelite.api.NPC;
+
+import java.awt.*;
+
+/**
+ * Immutable view of everything the overlay and infobox display, published by the plugin
+ * through a single volatile field. A renderer reads the field once per frame, so the count,
+ * its colour and the target it belongs to always come from the same update.
+ * <p>
+ * A new instance is only published when something in it changed, so readers can compare
+ * {@link #getVersion()} to tell whether to rebuild.
+ */
+@Getter
+public final class HitCounterState
+{
+    private final int version;
+    private final HitCounterSettings settings;
+
+    /**
+     * The displayed count, in the configured scope and mode.
+     */
+    private final int count;
+
+    /**
+     * The count in the configured scope, as hitsplats and as attacks.
+     */
+    private final int hitsplats;
+    private final int attacks;
+
+    /**
+     * Fewest hits or attacks, in the configured mode, in one kill of the last interacted NPC,
+     * or {@link PersonalRecords#NO_BEST}.
+     */
+    private final int personalBest;
+
+    /**
+     * Average hits or attacks per kill and the number of kills behind the personal best, or 0 without one.
+     */
+    private final double personalAverage;
+    private final int personalKills;
+
+    /**
+     * Hits per minute and damage per tick over the configured rate window, or 0 when it is off.
+     */
+    private final double hitsPerMinute;
+    private final double damagePerTick;
+
+    private final boolean highlighted;
+    private final int targetIndex;
+    private final NPC lastInteractedNpc;
+    private final int lastAttackTick;
+    private final boolean outOfCombat;
+
+    private HitCounterState(int version, HitCounterSettings settings, int count, int hitsplats, int attacks,
+                            int personalBest, double personalAverage, int personalKills, double hitsPerMinute,
+                            double damagePerTick, boolean highlighted, int targetIndex, NPC lastInteractedNpc,
+                            int lastAttackTick, boolean outOfCombat)
+    {
+        this.version = version;
+        this.settings = settings;
+        this.count = count;
+        this.hitsplats = hitsplats;
+        this.attacks = attacks;
+        this.personalBest = personalBest;
+        this.personalAverage = personalAverage;
+        this.personalKills = personalKills;
+        this.hitsPerMinute = hitsPerMinute;
+        this.damagePerTick = damagePerTick;
+        this.highlighted = highlighted;
+        this.targetIndex = targetIndex;
+        this.lastInteractedNpc = lastInteractedNpc;
+        this.lastAttackTick = lastAttackTick;
+        this.outOfCombat = outOfCombat;
+    }
+
+    /**
+     * Reads the engine and returns the previous state if nothing changed, otherwise a new one
+     * with the next version. Client thread only.
+     *
+     * @param previous the state published last, or null
+     * @param records  personal records of the last interacted NPC, or null if not shown
+     */
+    static HitCounterState capture(HitCounterState previous, HitCounterEngine engine, NPC lastInteractedNpc,
+                                   PersonalRecords.Record records)
+    {
+        HitCounterSettings settings = engine.getSettings();
+        int personalBest = records == null ? PersonalRecords.NO_BEST : records.getBest(settings.getCountMode());
+        double personalAverage = records == null ? 0 : records.getAverage(settings.getCountMode());
+        int personalKills = records == null ? 0 : records.getKills();
+        int count = engine.getCount();
+        int hitsplats = engine.getCount(HitCounterConfig.CountMode.HITSPLATS);
+        int attacks = engine.getCount(HitCounterConfig.CountMode.ATTACKS);
+        double hitsPerMinute = engine.getRates().getHitsPerMinute(settings.getRateWindow());
+        double damagePerTick = engine.getRates().getDamagePerTick(settings.getRateWindow());
+        boolean highlighted = engine.isHighlighted();
+        int targetIndex = engine.getTargetIndex();
+        int lastAttackTick = engine.getLastAttackTick();
+        boolean outOfCombat = engine.isOutOfCombat();
+
+        if (previous != null && previous.settings == settings && previous.count == count
+                && previous.hitsplats == hitsplats && previous.attacks == attacks
+                && previous.personalBest == personalBest && previous.personalAverage == personalAverage
+                && previous.personalKills == personalKills && previous.hitsPerMinute == hitsPerMinute
+                && previous.damagePerTick == damagePerTick && previous.highlighted == highlighted && previous.targetIndex == targetIndex
+                && previous.lastInteractedNpc == lastInteractedNpc && previous.lastAttackTick == lastAttackTick
+                && previous.outOfCombat == outOfCombat)
+        {
+            return previous;
+        }
+
+        return new HitCounterState(previous == null ? 0 : previous.version + 1, settings, count, hitsplats, attacks,
+                personalBest, personalAverage, personalKills, hitsPerMinute, damagePerTick, highlighted, targetIndex,
+                lastInteractedNpc, lastAttackTick, outOfCombat);
+    }
+
+    /**
+     * Color the counter should be drawn in.
+     */
+    public Color getCounterColor()
+    {
+        return settings.getCounterColor(highlighted);
+    }
+}
@@ -0,0 +1,346 @@
+package com.hitcounter;
+
+import java.util.Arrays;
+
+/**
+ * Counted hits and damage broken down by NPC id, equipped weapon, attack style and hitsplat type.
+ * Each combination is one entry of an open-addressing map keyed by the four dimensions packed into a long,
+ * with the counts in parallel primitive arrays, so recording a hit neither boxes nor allocates.
+ * <p>
+ * Holds at most a fixed number of entries; adding a new combination when full evicts the least
+ * recently updated one. Finding it scans the table, which only happens for a combination not seen
+ * recently, never for repeat hits.
+ * Not thread safe; only touched from the client thread.
+ */
+public final class HitCube
+{
+    /**
+     * Matches any value of a dimension in queries, and stands for a rolled-up dimension in {@link #rollUp(int)}.
+     */
+    public static final int ANY = -1;
+
+    /**
+     * Weapon id recorded when nothing is wielded.
+     */
+    public static final int UNARMED = 0;
+
+    /**
+     * Dimension flags for {@link #rollUp(int)}.
+     */
+    public static final int NPC = 1;
+    public static final int WEAPON = 1 << 1;
+    public static final int ATTACK_STYLE = 1 << 2;
+    public static final int HITSPLAT_TYPE = 1 << 3;
+    public static final int ALL_DIMENSIONS = NPC | WEAPON | ATTACK_STYLE | HITSPLAT_TYPE;
+
+    /**
+     * Bit width and offset of each dimension in a key. The all-ones value of a field means {@link #ANY},
+     * so larger values are clamped one below it.
+     */
+    private static final int NPC_BITS = 20;
+    private static final int WEAPON_BITS = 20;
+    private static final int STYLE_BITS = 8;
+    private static final int TYPE_BITS = 8;
+
+    private static final int TYPE_SHIFT = 0;
+    private static final int STYLE_SHIFT = TYPE_SHIFT + TYPE_BITS;
+    private static final int WEAPON_SHIFT = STYLE_SHIFT + STYLE_BITS;
+    private static final int NPC_SHIFT = WEAPON_SHIFT + WEAPON_BITS;
+
+    /**
+     * Packed keys never set the sign bit.
+     */
+    private static final long FREE_KEY = -1L;
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private final int maxEntries;
+    private final long[] keys;
+    private final int[] hits;
+    private final long[] damage;
+    /**
+     * Value of {@link #clock} when each entry was last updated.
+     */
+    private final long[] lastUsed;
+    private final int mask;
+
+    private int size;
+    private long clock;
+    private long evicted;
+
+    public HitCube(int maxEntries)
+    {
+        this.maxEntries = maxEntries;
+        int capacity = Math.max(8, Integer.highestOneBit(Math.max(1, (int) (maxEntries / LOAD_FACTOR)) - 1) << 1);
+        keys = new long[capacity];
+        hits = new int[capacity];
+        damage = new long[capacity];
+        lastUsed = new long[capacity];
+        mask = capacity - 1;
+        Arrays.fill(keys, FREE_KEY);
+    }
+
+    /**
+     * Counts one hit.
+     *
+     * @param weaponId equipped weapon id, or {@link #UNARMED}
+     */
+    public void add(int npcId, int weaponId, int attackStyle, int hitsplatType, int amount)
+    {
+        add(key(npcId, weaponId, attackStyle, hitsplatType), 1, amount);
+    }
+
+    private void add(long key, int hitCount, long amount)
+    {
+        int slot = indexOf(key);
+        if (keys[slot] == FREE_KEY)
+        {
+            if (size == maxEntries)
+            {
+                evictLeastRecent();
+                slot = indexOf(key);
+            }
+            keys[slot] = key;
+            hits[slot] = 0;
+            damage[slot] = 0;
+            size++;
+        }
+
+        hits[slot] += hitCount;
+        damage[slot] += amount;
+        lastUsed[slot] = ++clock;
+    }
+
+    /**
+     * Hits matching the given values, any of which may be {@link #ANY}.
+     */
+    public int getHits(int npcId, int weaponId, int attackStyle, int hitsplatType)
+    {
+        long pattern = key(npcId, weaponId, attackStyle, hitsplatType);
+        long match = matchMask(npcId, weaponId, attackStyle, hitsplatType);
+        if (match == ~0L)
+        {
+            int slot = indexOf(pattern);
+            return keys[slot] == FREE_KEY ? 0 : hits[slot];
+        }
+
+        int total = 0;
+        for (int slot = 0; slot < keys.length; slot++)
+        {
+            if (keys[slot] != FREE_KEY && (keys[slot] & match) == (pattern & match))
+            {
+                total += hits[slot];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Damage dealt by the hits matching the given values, any of which may be {@link #ANY}.
+     */
+    public long getDamage(int npcId, int weaponId, int attackStyle, int hitsplatType)
+    {
+        long pattern = key(npcId, weaponId, attackStyle, hitsplatType);
+        long match = matchMask(npcId, weaponId, attackStyle, hitsplatType);
+        long total = 0;
+        for (int slot = 0; slot < keys.length; slot++)
+        {
+            if (keys[slot] != FREE_KEY && (keys[slot] & match) == (pattern & match))
+            {
+                total += damage[slot];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Totals over the dimensions not in the given flags: a new cube with one entry per distinct combination
+     * of the kept dimensions, where the others read as {@link #ANY}. Keeping {@link #NPC} | {@link #WEAPON}
+     * gives hits per weapon on each NPC, across styles and hitsplat types.
+     */
+    public HitCube rollUp(int dimensions)
+    {
+        long keep = (dimensions & NPC) != 0 ? 0 : field(NPC_BITS, NPC_SHIFT);
+        keep |= (dimensions & WEAPON) != 0 ? 0 : field(WEAPON_BITS, WEAPON_SHIFT);
+        keep |= (dimensions & ATTACK_STYLE) != 0 ? 0 : field(STYLE_BITS, STYLE_SHIFT);
+        keep |= (dimensions & HITSPLAT_TYPE) != 0 ? 0 : field(TYPE_BITS, TYPE_SHIFT);
+
+        HitCube result = new HitCube(Math.max(1, size));
+        for (int slot = 0; slot < keys.length; slot++)
+        {
+            if (keys[slot] != FREE_KEY)
+            {
+                result.add(keys[slot] | keep, hits[slot], damage[slot]);
+            }
+        }
+        return result;
+    }
+
+    public void clear()
+    {
+        if (size == 0)
+        {
+            return;
+        }
+
+        Arrays.fill(keys, FREE_KEY);
+        size = 0;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public int getMaxEntries()
+    {
+        return maxEntries;
+    }
+
+    /**
+     * Entries dropped to stay under {@link #getMaxEntries()} since the cube was created.
+     */
+    public long getEvicted()
+    {
+        return evicted;
+    }
+
+    /**
+     * Number of slots, for iterating the entries with {@link #isUsed(int)}.
+     */
+    public int getSlotCount()
+    {
+        return keys.length;
+    }
+
+    public boolean isUsed(int slot)
+    {
+        return keys[slot] != FREE_KEY;
+    }
+
+    public int getNpcId(int slot)
+    {
+        return unpack(keys[slot], NPC_BITS, NPC_SHIFT);
+    }
+
+    public int getWeaponId(int slot)
+    {
+        return unpack(keys[slot], WEAPON_BITS, WEAPON_SHIFT);
+    }
+
+    public int getAttackStyle(int slot)
+    {
+        return unpack(keys[slot], STYLE_BITS, STYLE_SHIFT);
+    }
+
+    public int getHitsplatType(int slot)
+    {
+        return unpack(keys[slot], TYPE_BITS, TYPE_SHIFT);
+    }
+
+    public int getHits(int slot)
+    {
+        return hits[slot];
+    }
+
+    public long getDamage(int slot)
+    {
+        return damage[slot];
+    }
+
+    private static long key(int npcId, int weaponId, int attackStyle, int hitsplatType)
+    {
+        return pack(npcId, NPC_BITS, NPC_SHIFT)
+                | pack(weaponId, WEAPON_BITS, WEAPON_SHIFT)
+                | pack(attackStyle, STYLE_BITS, STYLE_SHIFT)
+                | pack(hitsplatType, TYPE_BITS, TYPE_SHIFT);
+    }
+
+    /**
+     * Bits of a key that must match the pattern: every field not given as {@link #ANY}.
+     */
+    private static long matchMask(int npcId, int weaponId, int attackStyle, int hitsplatType)
+    {
+        long match = ~0L;
+        match &= npcId == ANY ? ~field(NPC_BITS, NPC_SHIFT) : ~0L;
+        match &= weaponId == ANY ? ~field(WEAPON_BITS, WEAPON_SHIFT) : ~0L;
+        match &= attackStyle == ANY ? ~field(STYLE_BITS, STYLE_SHIFT) : ~0L;
+        match &= hitsplatType == ANY ? ~field(TYPE_BITS, TYPE_SHIFT) : ~0L;
+        return match;
+    }
+
+    private static long pack(int value, int bits, int shift)
+    {
+        long any = (1L << bits) - 1;
+        long packed = value == ANY || value < 0 ? any : Math.min(value, any - 1);
+        return packed << shift;
+    }
+
+    private static int unpack(long key, int bits, int shift)
+    {
+        long any = (1L << bits) - 1;
+        long value = (key >>> shift) & any;
+        return value == any ? ANY : (int) value;
+    }
+
+    private static long field(int bits, int shift)
+    {
+        return ((1L << bits) - 1) << shift;
+    }
+
+    /**
+     * Slot of the key, or of the free slot where it would be inserted.
+     */
+    private int indexOf(long key)
+    {
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE_KEY && keys[slot] != key)
+        {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void evictLeastRecent()
+    {
+        int oldest = -1;
+        for (int slot = 0; slot < keys.length; slot++)
+        {
+            if (keys[slot] != FREE_KEY && (oldest < 0 || lastUsed[slot] < lastUsed[oldest]))
+            {
+                oldest = slot;
+            }
+        }
+
+        shiftBack(oldest);
+        size--;
+        evicted++;
+    }
+
+    private void shiftBack(int slot)
+    {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != FREE_KEY)
+        {
+            int home = mix(keys[next]) & mask;
+            // Move the entry into the gap unless its home lies cyclically in (gap, next]
+            if (((next - home) & mask) >= ((next - gap) & mask))
+            {
+                keys[gap] = keys[next];
+                hits[gap] = hits[next];
+                damage[gap] = damage[next];
+                lastUsed[gap] = lastUsed[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = FREE_KEY;
+    }
+
+    private static int mix(long key)
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
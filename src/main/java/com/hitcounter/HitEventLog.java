@@ -0,0 +1,179 @@
+package com.hitcounter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact stream of engine events, four ints per event, that can be
+ * replayed through a {@link HitCounterEngine}.
+ * A tick event advances the engine clock and then flushes the hits batched since
+ * the previous one, in the same order as the plugin's game tick handler.
+ * Config changes refer to settings snapshots held alongside the stream;
+ * those are not serialized, so a stored log carries only the other events.
+ */
+public class HitEventLog
+{
+    public static final int HITSPLAT = 0;
+    public static final int DESPAWN = 1;
+    public static final int DEATH = 2;
+    public static final int TICK = 3;
+    public static final int CONFIG = 4;
+    public static final int KILL = 5;
+
+    private static final int WORDS = 4;
+
+    private static final int MAGIC = 0x48434C47; // "HCLG"
+
+    private static final int VERSION = 1;
+
+    private int[] data;
+    private int size;
+    private final List<HitCounterSettings> settings = new ArrayList<>();
+
+    public HitEventLog(int expectedEvents)
+    {
+        data = new int[Math.max(16, expectedEvents) * WORDS];
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public void hitsplat(int npcIndex, int npcId, int hitsplatType, int amount)
+    {
+        append(HITSPLAT, npcIndex, npcId, hitsplatType, amount);
+    }
+
+    public void despawn(int npcIndex)
+    {
+        append(DESPAWN, npcIndex, 0, 0, 0);
+    }
+
+    public void kill(int npcIndex)
+    {
+        append(KILL, npcIndex, 0, 0, 0);
+    }
+
+    public void death()
+    {
+        append(DEATH, 0, 0, 0, 0);
+    }
+
+    public void tick(int tick)
+    {
+        append(TICK, 0, tick, 0, 0);
+    }
+
+    public void config(HitCounterSettings snapshot)
+    {
+        settings.add(snapshot);
+        append(CONFIG, 0, settings.size() - 1, 0, 0);
+    }
+
+    /**
+     * Feeds every event through the engine in order.
+     */
+    public void replay(HitCounterEngine engine)
+    {
+        final int[] data = this.data;
+        final int end = size * WORDS;
+
+        for (int i = 0; i < end; i += WORDS)
+        {
+            int header = data[i];
+            switch (header & 0xFF)
+            {
+                case HITSPLAT:
+                    engine.hitsplat(header >>> 8, data[i + 1], data[i + 2], data[i + 3]);
+                    break;
+                case DESPAWN:
+                    engine.despawn(header >>> 8);
+                    break;
+                case KILL:
+                    engine.kill(header >>> 8, null);
+                    break;
+                case DEATH:
+                    engine.death();
+                    break;
+                case TICK:
+                    engine.tick(data[i + 1]);
+                    engine.flush();
+                    break;
+                case CONFIG:
+                    engine.configure(settings.get(data[i + 1]));
+                    break;
+            }
+        }
+    }
+
+    public void write(DataOutput out) throws IOException
+    {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        int count = 0;
+        for (int i = 0; i < size; i++)
+        {
+            if ((data[i * WORDS] & 0xFF) != CONFIG)
+            {
+                count++;
+            }
+        }
+
+        out.writeInt(count);
+        for (int i = 0; i < size * WORDS; i += WORDS)
+        {
+            if ((data[i] & 0xFF) == CONFIG)
+            {
+                continue;
+            }
+
+            for (int w = 0; w < WORDS; w++)
+            {
+                out.writeInt(data[i + w]);
+            }
+        }
+    }
+
+    public static HitEventLog read(DataInput in) throws IOException
+    {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION)
+        {
+            throw new IOException("Not a hit event log");
+        }
+
+        int count = in.readInt();
+        if (count < 0)
+        {
+            throw new IOException("Corrupt hit event log");
+        }
+
+        HitEventLog log = new HitEventLog(count);
+        for (int i = 0; i < count * WORDS; i++)
+        {
+            log.data[i] = in.readInt();
+        }
+        log.size = count;
+        return log;
+    }
+
+    private void append(int type, int npcIndex, int a, int b, int c)
+    {
+        if ((size + 1) * WORDS > data.length)
+        {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+
+        int i = size * WORDS;
+        data[i] = type | npcIndex << 8;
+        data[i + 1] = a;
+        data[i + 2] = b;
+        data[i + 3] = c;
+        size++;
+    }
+}
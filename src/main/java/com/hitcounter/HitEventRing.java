@@ -0,0 +1,128 @@
+package com.hitcounter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Preallocated single-producer/single-consumer ring of counted hits.
+ * <p>
+ * Records are stored as {@link #FIELDS} ints per slot in one array, so publishing a hit is
+ * a few array writes into a reused slot and an ordered store of the tail; nothing is allocated.
+ * The client thread is the only producer and {@link HitEventWorker} the only consumer.
+ * <p>
+ * Overflow policy: when the ring is full the new hit is dropped and counted in
+ * {@link #getDropped()}. The producer never blocks or overwrites records the consumer
+ * has not read yet.
+ */
+class HitEventRing
+{
+    interface Consumer
+    {
+        void onHit(int tick, int npcIndex, int npcId, int hitsplatType, int amount, int counter);
+    }
+
+    static final int FIELDS = 6;
+
+    private final int[] slots;
+    private final int mask;
+
+    /**
+     * Next sequence to publish, written by the producer.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Next sequence to read, written by the consumer.
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Producer's last read of {@link #head}, refreshed only when the ring looks full.
+     */
+    private long cachedHead;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity number of records, rounded up to a power of two
+     */
+    HitEventRing(int capacity)
+    {
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        slots = new int[size * FIELDS];
+        mask = size - 1;
+    }
+
+    /**
+     * Publishes one hit. Producer thread only.
+     *
+     * @return false if the ring was full and the hit was dropped
+     */
+    boolean offer(int tick, int npcIndex, int npcId, int hitsplatType, int amount, int counter)
+    {
+        final long sequence = tail.get();
+        if (sequence - cachedHead > mask)
+        {
+            cachedHead = head.get();
+            if (sequence - cachedHead > mask)
+            {
+                dropped.lazySet(dropped.get() + 1);
+                return false;
+            }
+        }
+
+        final int offset = (int) (sequence & mask) * FIELDS;
+        slots[offset] = tick;
+        slots[offset + 1] = npcIndex;
+        slots[offset + 2] = npcId;
+        slots[offset + 3] = hitsplatType;
+        slots[offset + 4] = amount;
+        slots[offset + 5] = counter;
+        // Ordered store: the slot writes above are visible before the new tail
+        tail.lazySet(sequence + 1);
+        return true;
+    }
+
+    /**
+     * Hands every published hit to the consumer and frees the slots. Consumer thread only.
+     *
+     * @return the number of hits drained
+     */
+    int drain(Consumer consumer)
+    {
+        final long start = head.get();
+        final long end = tail.get();
+        for (long sequence = start; sequence < end; sequence++)
+        {
+            final int offset = (int) (sequence & mask) * FIELDS;
+            consumer.onHit(slots[offset], slots[offset + 1], slots[offset + 2],
+                    slots[offset + 3], slots[offset + 4], slots[offset + 5]);
+        }
+
+        if (end != start)
+        {
+            head.lazySet(end);
+        }
+        return (int) (end - start);
+    }
+
+    int getCapacity()
+    {
+        return mask + 1;
+    }
+
+    /**
+     * Hits published and not yet drained.
+     */
+    int size()
+    {
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * Hits dropped because the ring was full, since the ring was created.
+     */
+    long getDropped()
+    {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,162 @@
+package com.hitcounter;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drains a {@link HitEventRing} on one background thread and fans each hit out to the
+ * downstream consumers, so adding a consumer adds nothing to the client thread.
+ * <p>
+ * The producer never wakes the worker; it polls every {@link #POLL_INTERVAL_MS}, which
+ * is well inside a game tick and keeps publishing a hit free of any signalling.
+ * <p>
+ * Only consumers nothing on the client thread reads from belong here, which today is the
+ * hit log. The damage stats, hit breakdown, kill history and hit rates stay in
+ * {@link HitCounterEngine} on purpose: the overlay, infobox, tooltip and export read them
+ * on the client thread, and updating them there costs a few array writes per hit, where
+ * feeding them from here would mean publishing a copy of each after every drain.
+ */
+@Slf4j
+class HitEventWorker
+{
+    /**
+     * Consumer that also gets a call after every drain, and a last one when the worker stops.
+     */
+    interface Sink extends HitEventRing.Consumer
+    {
+        default void drained()
+        {
+        }
+
+        /**
+         * Called on the worker thread after its last drain, so the sink can release what it holds
+         * without racing a late hit.
+         */
+        default void stopped()
+        {
+        }
+    }
+
+    private static final long POLL_INTERVAL_MS = 20;
+
+    private static final long STOP_TIMEOUT_MS = 1000;
+
+    private final HitEventRing ring;
+    private final Sink[] sinks;
+
+    private final HitEventRing.Consumer fanOut;
+
+    private volatile boolean running;
+
+    private Thread thread;
+
+    HitEventWorker(HitEventRing ring, Sink... sinks)
+    {
+        this.ring = ring;
+        this.sinks = sinks.clone();
+        this.fanOut = (tick, npcIndex, npcId, hitsplatType, amount, counter) ->
+        {
+            for (Sink sink : this.sinks)
+            {
+                try
+                {
+                    sink.onHit(tick, npcIndex, npcId, hitsplatType, amount, counter);
+                }
+                catch (RuntimeException ex)
+                {
+                    // Keep going, a failing consumer must not hold up the others or replay the hit
+                    log.warn("Hit event consumer failed", ex);
+                }
+            }
+        };
+    }
+
+    void start()
+    {
+        if (thread != null)
+        {
+            return;
+        }
+
+        running = true;
+        thread = new Thread(this::run, "hit-counter-analytics");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the worker once it has drained what was already published, waiting up to
+     * {@link #STOP_TIMEOUT_MS} for it. The sinks are stopped on the worker thread either way,
+     * so one that outlives the wait still finishes its last drain before they let go.
+     */
+    void stop()
+    {
+        if (thread == null)
+        {
+            return;
+        }
+
+        running = false;
+        LockSupport.unpark(thread);
+        try
+        {
+            thread.join(STOP_TIMEOUT_MS);
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        if (thread.isAlive())
+        {
+            log.warn("Hit event worker still draining after {} ms, leaving it to finish", STOP_TIMEOUT_MS);
+        }
+        thread = null;
+    }
+
+    private void run()
+    {
+        final long pollNanos = TimeUnit.MILLISECONDS.toNanos(POLL_INTERVAL_MS);
+        boolean more = true;
+        while (more)
+        {
+            // Read before draining so the hits published before stop() are still handed out
+            more = running;
+            if (drain() == 0 && more)
+            {
+                LockSupport.parkNanos(this, pollNanos);
+            }
+        }
+
+        for (Sink sink : sinks)
+        {
+            try
+            {
+                sink.stopped();
+            }
+            catch (RuntimeException ex)
+            {
+                log.warn("Hit event consumer failed", ex);
+            }
+        }
+    }
+
+    private int drain()
+    {
+        int drained = ring.drain(fanOut);
+        for (Sink sink : sinks)
+        {
+            try
+            {
+                sink.drained();
+            }
+            catch (RuntimeException ex)
+            {
+                log.warn("Hit event consumer failed", ex);
+            }
+        }
+        return drained;
+    }
+}
@@ -0,0 +1,233 @@
+package com.hitcounter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Decides which hitsplats are counted, compiled from the include and exclude lists in the config.
+ * <p>
+ * Each list is comma-separated. An entry is an NPC id ({@code 2042}), a hitsplat type id
+ * ({@code type:12}) or a case-insensitive NPC name where {@code *} and {@code ?} are wildcards
+ * ({@code *imp*}). An empty include list lets every NPC or hitsplat type through; the exclude
+ * list always wins.
+ * <p>
+ * Hitsplat types are checked against a {@link BitSet}. NPC verdicts are worked out once per NPC
+ * id, which is the only time the name is looked at, and cached in an array indexed by id.
+ * The cache is only touched from the client thread.
+ */
+public final class HitFilter
+{
+    private static final String TYPE_PREFIX = "type:";
+
+    /**
+     * Hitsplat types fit in a byte; larger type ids are ignored like any other invalid entry,
+     * rather than sizing the type sets to them.
+     */
+    private static final int MAX_HITSPLAT_TYPE = 255;
+
+    private static final byte UNKNOWN = 0;
+    private static final byte ACCEPTED = 1;
+    private static final byte REJECTED = 2;
+
+    /**
+     * NPC ids go up to a little over 14000; the cache grows past this when needed.
+     */
+    private static final int INITIAL_NPC_IDS = 16384;
+
+    private final BitSet includedTypes;
+    private final BitSet excludedTypes;
+    private final boolean includeAllTypes;
+
+    private final IntIntMap includedIds;
+    private final Pattern[] includedNames;
+    private final boolean includeAll;
+
+    private final IntIntMap excludedIds;
+    private final Pattern[] excludedNames;
+
+    private byte[] verdicts;
+
+    private HitFilter(Rules include, Rules exclude)
+    {
+        includedIds = include.ids;
+        includedNames = include.names.toArray(new Pattern[0]);
+        includeAll = include.ids.isEmpty() && include.names.isEmpty();
+
+        excludedIds = exclude.ids;
+        excludedNames = exclude.names.toArray(new Pattern[0]);
+
+        includedTypes = include.types;
+        excludedTypes = exclude.types;
+        includeAllTypes = include.types.isEmpty();
+
+        verdicts = new byte[INITIAL_NPC_IDS];
+    }
+
+    public static HitFilter compile(String include, String exclude)
+    {
+        return new HitFilter(Rules.parse(include), Rules.parse(exclude));
+    }
+
+    public boolean acceptsType(int hitsplatType)
+    {
+        if (hitsplatType < 0)
+        {
+            return includeAllTypes;
+        }
+
+        return !excludedTypes.get(hitsplatType) && (includeAllTypes || includedTypes.get(hitsplatType));
+    }
+
+    /**
+     * Whether hits on the NPC count. The name is only read the first time an id is seen,
+     * and may be null.
+     */
+    public boolean acceptsNpc(int npcId, String npcName)
+    {
+        if (npcId >= 0 && npcId < verdicts.length)
+        {
+            byte verdict = verdicts[npcId];
+            if (verdict != UNKNOWN)
+            {
+                return verdict == ACCEPTED;
+            }
+        }
+
+        boolean accepted = evaluate(npcId, npcName);
+        if (npcId >= 0)
+        {
+            if (npcId >= verdicts.length)
+            {
+                verdicts = Arrays.copyOf(verdicts, Math.max(verdicts.length * 2, npcId + 1));
+            }
+            verdicts[npcId] = accepted ? ACCEPTED : REJECTED;
+        }
+        return accepted;
+    }
+
+    /**
+     * Whether the verdict for the NPC id is cached, so {@link #acceptsNpc} will not read the name.
+     */
+    public boolean isCached(int npcId)
+    {
+        return npcId >= 0 && npcId < verdicts.length && verdicts[npcId] != UNKNOWN;
+    }
+
+    private boolean evaluate(int npcId, String npcName)
+    {
+        String name = npcName == null ? "" : npcName;
+
+        if (excludedIds.containsKey(npcId) || matches(excludedNames, name))
+        {
+            return false;
+        }
+
+        return includeAll || includedIds.containsKey(npcId) || matches(includedNames, name);
+    }
+
+    private static boolean matches(Pattern[] patterns, String name)
+    {
+        for (Pattern pattern : patterns)
+        {
+            if (pattern.matcher(name).matches())
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The entries of one list, sorted by kind.
+     */
+    private static final class Rules
+    {
+        private final IntIntMap ids = new IntIntMap(16);
+        private final List<Pattern> names = new ArrayList<>();
+        private final BitSet types = new BitSet();
+
+        private static Rules parse(String list)
+        {
+            Rules rules = new Rules();
+            if (list == null)
+            {
+                return rules;
+            }
+
+            for (String entry : list.split(","))
+            {
+                String rule = entry.trim().toLowerCase(Locale.ROOT);
+                if (rule.isEmpty())
+                {
+                    continue;
+                }
+
+                if (rule.startsWith(TYPE_PREFIX))
+                {
+                    int type = parseId(rule.substring(TYPE_PREFIX.length()).trim());
+                    if (type >= 0 && type <= MAX_HITSPLAT_TYPE)
+                    {
+                        rules.types.set(type);
+                    }
+                    continue;
+                }
+
+                int id = parseId(rule);
+                if (id >= 0)
+                {
+                    rules.ids.put(id, 1);
+                }
+                else
+                {
+                    rules.names.add(glob(rule));
+                }
+            }
+            return rules;
+        }
+
+        private static int parseId(String text)
+        {
+            if (text.isEmpty() || text.length() > 9)
+            {
+                return -1;
+            }
+
+            for (int i = 0; i < text.length(); i++)
+            {
+                if (!Character.isDigit(text.charAt(i)))
+                {
+                    return -1;
+                }
+            }
+            return Integer.parseInt(text);
+        }
+
+        private static Pattern glob(String rule)
+        {
+            StringBuilder regex = new StringBuilder();
+            int literalStart = 0;
+            for (int i = 0; i < rule.length(); i++)
+            {
+                char c = rule.charAt(i);
+                if (c == '*' || c == '?')
+                {
+                    if (i > literalStart)
+                    {
+                        regex.append(Pattern.quote(rule.substring(literalStart, i)));
+                    }
+                    regex.append(c == '*' ? ".*" : ".");
+                    literalStart = i + 1;
+                }
+            }
+            if (literalStart < rule.length())
+            {
+                regex.append(Pattern.quote(rule.substring(literalStart)));
+            }
+            return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.DOTALL);
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.hitcounter;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Append-only log of counted hits, one fixed-width record per hit.
+ * <p>
+ * Records go into memory-mapped segment files of {@link #SEGMENT_SIZE} bytes.
+ * The next segment is always created and mapped ahead of time on the executor,
+ * so appending is a handful of absolute puts into the mapped buffer. Appends come
+ * from the {@link HitEventWorker} thread, never the client thread. If the next
+ * segment is not ready when the current one fills, the record is dropped and
+ * counted rather than blocking.
+ * <p>
+ * Segments left by earlier client runs are compacted in the background into a
+ * single {@code .log} file holding only their written records.
+ * <p>
+ * Segment and log layout: a 16 byte header (magic, version, record size,
+ * record count) followed by records of tick, NPC id, hitsplat type, amount
+ * and counter value, all big-endian ints.
+ */
+@Slf4j
+class HitLogWriter implements HitEventWorker.Sink
+{
+    static final int RECORD_SIZE = 20;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int COUNT_OFFSET = 12;
+    private static final int MAGIC = 0x48434854; // "HCHT"
+    private static final int VERSION = 1;
+
+    static final int SEGMENT_SIZE = 1 << 20;
+    static final int RECORDS_PER_SEGMENT = (SEGMENT_SIZE - HEADER_SIZE) / RECORD_SIZE;
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("hits-(\\d+)\\.seg");
+    private static final Pattern LOG_NAME = Pattern.compile("hits-(\\d+)-(\\d+)\\.log");
+
+    private final File directory;
+    private final Executor executor;
+
+    private final Runnable prepareNext = this::prepareNext;
+
+    private volatile boolean open;
+
+    /**
+     * Mapped segment created ahead of time on the executor, taken by the appending thread
+     * when the current one fills.
+     */
+    private volatile MappedByteBuffer next;
+
+    /**
+     * Next segment sequence number. Only touched on the executor.
+     */
+    private int nextSequence = -1;
+
+    /**
+     * First segment created by this process. Segments from here on may still be
+     * mapped after the plugin was toggled, so compaction leaves them alone.
+     */
+    private static volatile int processFirstSequence = -1;
+
+    /**
+     * Segment being appended to. Only touched by the appending thread.
+     */
+    private MappedByteBuffer current;
+    private int currentRecords;
+    private volatile int droppedRecords;
+
+    HitLogWriter(File directory, Executor executor)
+    {
+        this.directory = directory;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts logging. The first segment is mapped on the executor,
+     * so hits recorded before it is ready are dropped.
+     */
+    void open()
+    {
+        if (open)
+        {
+            return;
+        }
+
+        open = true;
+        executor.execute(() ->
+        {
+            if (!directory.isDirectory() && !directory.mkdirs())
+            {
+                log.warn("Unable to create hit log directory {}", directory);
+                open = false;
+                return;
+            }
+
+            int sessionStart = scanNextSequence();
+            if (processFirstSequence < 0)
+            {
+                processFirstSequence = sessionStart;
+            }
+
+            nextSequence = sessionStart;
+            prepareNext();
+            compact(processFirstSequence);
+        });
+    }
+
+    /**
+     * Stops logging. The appending thread lets go of the current segment
+     * and flushes it on the executor after its next drain.
+     */
+    void close()
+    {
+        if (!open)
+        {
+            return;
+        }
+
+        open = false;
+        executor.execute(() ->
+        {
+            // An unused prepared segment stays on disk empty and is dropped by the next compaction
+            next = null;
+        });
+    }
+
+    @Override
+    public void onHit(int tick, int npcIndex, int npcId, int hitsplatType, int amount, int counter)
+    {
+        append(tick, npcId, hitsplatType, amount, counter);
+    }
+
+    /**
+     * Closes the log once the worker has appended its last hit, letting go of the current segment.
+     */
+    @Override
+    public void stopped()
+    {
+        close();
+        drained();
+    }
+
+    @Override
+    public void drained()
+    {
+        if (!open && current != null)
+        {
+            MappedByteBuffer last = current;
+            current = null;
+            currentRecords = 0;
+            executor.execute(last::force);
+        }
+    }
+
+    /**
+     * Records one counted hit. Appending thread only.
+     */
+    void append(int tick, int npcId, int hitsplatType, int amount, int counter)
+    {
+        if (!open)
+        {
+            return;
+        }
+
+        if ((current == null || currentRecords == RECORDS_PER_SEGMENT) && !rollover())
+        {
+            droppedRecords++;
+            return;
+        }
+
+        final MappedByteBuffer buffer = current;
+        final int offset = HEADER_SIZE + currentRecords * RECORD_SIZE;
+        buffer.putInt(offset, tick);
+        buffer.putInt(offset + 4, npcId);
+        buffer.putInt(offset + 8, hitsplatType);
+        buffer.putInt(offset + 12, amount);
+        buffer.putInt(offset + 16, counter);
+        buffer.putInt(COUNT_OFFSET, ++currentRecords);
+    }
+
+    int getDroppedRecords()
+    {
+        return droppedRecords;
+    }
+
+    private boolean rollover()
+    {
+        MappedByteBuffer ready = next;
+        if (ready == null)
+        {
+            return false;
+        }
+
+        next = null;
+        current = ready;
+        currentRecords = 0;
+        executor.execute(prepareNext);
+        return true;
+    }
+
+    private void prepareNext()
+    {
+        if (!open || next != null || nextSequence < 0)
+        {
+            return;
+        }
+
+        File file = new File(directory, String.format("hits-%08d.seg", nextSequence++));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel channel = raf.getChannel())
+        {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, RECORD_SIZE);
+            buffer.putInt(COUNT_OFFSET, 0);
+            // The mapping stays valid after the channel is closed
+            next = buffer;
+        }
+        catch (IOException ex)
+        {
+            log.warn("Unable to create hit log segment {}", file, ex);
+        }
+    }
+
+    private int scanNextSequence()
+    {
+        int max = -1;
+        File[] files = directory.listFiles();
+        if (files != null)
+        {
+            for (File file : files)
+            {
+                Matcher segment = SEGMENT_NAME.matcher(file.getName());
+                Matcher compacted = LOG_NAME.matcher(file.getName());
+                if (segment.matches())
+                {
+                    max = Math.max(max, Integer.parseInt(segment.group(1)));
+                }
+                else if (compacted.matches())
+                {
+                    max = Math.max(max, Integer.parseInt(compacted.group(2)));
+                }
+            }
+        }
+        return max + 1;
+    }
+
+    /**
+     * Merges the written records of segments from earlier runs of the client into one
+     * log file and deletes the segments.
+     */
+    private void compact(int sessionStart)
+    {
+        List<File> segments = new ArrayList<>();
+        int first = Integer.MAX_VALUE;
+        int last = -1;
+
+        File[] files = directory.listFiles();
+        if (files == null)
+        {
+            return;
+        }
+
+        for (File file : files)
+        {
+            Matcher matcher = SEGMENT_NAME.matcher(file.getName());
+            if (matcher.matches())
+            {
+                int sequence = Integer.parseInt(matcher.group(1));
+                if (sequence < sessionStart)
+                {
+                    segments.add(file);
+                    first = Math.min(first, sequence);
+                    last = Math.max(last, sequence);
+                }
+            }
+        }
+
+        if (segments.isEmpty())
+        {
+            return;
+        }
+
+        segments.sort(null);
+        File target = new File(directory, String.format("hits-%08d-%08d.log", first, last));
+        File temp = new File(directory, target.getName() + ".tmp");
+
+        try (FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            out.write(header, 0);
+            out.position(HEADER_SIZE);
+
+            int total = 0;
+            for (File segment : segments)
+            {
+                total += copyRecords(segment, out);
+            }
+
+            header.clear();
+            header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(total).flip();
+            out.write(header, 0);
+            out.force(true);
+        }
+        catch (IOException ex)
+        {
+            log.warn("Unable to compact hit log segments", ex);
+            temp.delete();
+            return;
+        }
+
+        if (!temp.renameTo(target))
+        {
+            log.warn("Unable to rename compacted hit log {}", temp);
+            temp.delete();
+            return;
+        }
+
+        for (File segment : segments)
+        {
+            if (!segment.delete())
+            {
+                log.warn("Unable to delete compacted hit log segment {}", segment);
+            }
+        }
+    }
+
+    private static int copyRecords(File segment, FileChannel out) throws IOException
+    {
+        try (FileChannel in = FileChannel.open(segment.toPath(), StandardOpenOption.READ))
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (in.read(header, 0) < HEADER_SIZE)
+            {
+                return 0;
+            }
+            header.flip();
+
+            if (header.getInt() != MAGIC || header.getInt() != VERSION || header.getInt() != RECORD_SIZE)
+            {
+                log.warn("Skipping unrecognised hit log segment {}", segment);
+                return 0;
+            }
+
+            int records = Math.min(header.getInt(), RECORDS_PER_SEGMENT);
+            long remaining = (long) records * RECORD_SIZE;
+            long position = HEADER_SIZE;
+            while (remaining > 0)
+            {
+                long copied = in.transferTo(position, remaining, out);
+                if (copied <= 0)
+                {
+                    break;
+                }
+                position += copied;
+                remaining -= copied;
+            }
+            return records;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.hitcounter;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing int to int hash map with linear probing.
+ * Missing keys read as 0, and {@link #FREE_KEY} cannot be stored.
+ * Removal shifts the probe chain back instead of leaving tombstones,
+ * so lookups stay short no matter how many keys come and go.
+ * Not thread safe; only touched from the client thread.
+ */
+public final class IntIntMap
+{
+    public static final int FREE_KEY = Integer.MIN_VALUE;
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    public IntIntMap(int expectedSize)
+    {
+        allocate(Math.max(8, Integer.highestOneBit(Math.max(1, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1));
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public boolean containsKey(int key)
+    {
+        return keys[indexOf(key)] != FREE_KEY;
+    }
+
+    /**
+     * Returns the value for the key, or 0 if absent.
+     */
+    public int get(int key)
+    {
+        int slot = indexOf(key);
+        return keys[slot] == FREE_KEY ? 0 : values[slot];
+    }
+
+    public void put(int key, int value)
+    {
+        int slot = indexOf(key);
+        if (keys[slot] == FREE_KEY)
+        {
+            insert(slot, key, value);
+        }
+        else
+        {
+            values[slot] = value;
+        }
+    }
+
+    /**
+     * Adds delta to the value for the key, inserting it if absent.
+     *
+     * @return the new value
+     */
+    public int add(int key, int delta)
+    {
+        int slot = indexOf(key);
+        if (keys[slot] == FREE_KEY)
+        {
+            insert(slot, key, delta);
+            return delta;
+        }
+
+        return values[slot] += delta;
+    }
+
+    public int increment(int key)
+    {
+        return add(key, 1);
+    }
+
+    /**
+     * Removes the key.
+     *
+     * @return the removed value, or 0 if absent
+     */
+    public int remove(int key)
+    {
+        int slot = indexOf(key);
+        if (keys[slot] == FREE_KEY)
+        {
+            return 0;
+        }
+
+        int removed = values[slot];
+        shiftBack(slot);
+        size--;
+        return removed;
+    }
+
+    public void clear()
+    {
+        if (size == 0)
+        {
+            return;
+        }
+
+        Arrays.fill(keys, FREE_KEY);
+        size = 0;
+    }
+
+    /**
+     * Slot of the key, or of the free slot where it would be inserted.
+     */
+    private int indexOf(int key)
+    {
+        if (key == FREE_KEY)
+        {
+            throw new IllegalArgumentException("Reserved key");
+        }
+
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE_KEY && keys[slot] != key)
+        {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insert(int slot, int key, int value)
+    {
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size >= resizeAt)
+        {
+            rehash(keys.length << 1);
+        }
+    }
+
+    private void shiftBack(int slot)
+    {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != FREE_KEY)
+        {
+            int home = mix(keys[next]) & mask;
+            // Move the entry into the gap unless its home lies cyclically in (gap, next]
+            if (((next - home) & mask) >= ((next - gap) & mask))
+            {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = FREE_KEY;
+    }
+
+    private void rehash(int capacity)
+    {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldKeys[i] != FREE_KEY)
+            {
+                int slot = indexOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, FREE_KEY);
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int mix(int key)
+    {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
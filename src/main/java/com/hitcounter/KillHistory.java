@@ -0,0 +1,406 @@
+package com.hitcounter;
+
+import java.util.Arrays;
+
+/**
+ * The most recent kills, kept in a fixed ring of primitive columns, each with the sequence of hits that made it.
+ * A kill is an NPC the player hit dying; the oldest kill is overwritten once the ring is full.
+ * <p>
+ * Hits on NPCs still alive wait in an open buffer tagged with the NPC index, and are discarded if the NPC
+ * despawns without dying. Closing a kill moves its hits into one hit arena shared by all kills, as tick
+ * offset, amount and hitsplat type columns, about five bytes a hit. The arena grows up to {@link #MAX_HITS},
+ * after which the oldest kills are dropped to make room.
+ * Client thread only; readers on other threads get a copy through {@link ExportSnapshot}.
+ */
+public final class KillHistory
+{
+    static final int CAPACITY = 4096;
+
+    /**
+     * Most hits held across all kills.
+     */
+    static final int MAX_HITS = 1 << 19;
+
+    /**
+     * Matches kills of every NPC in queries.
+     */
+    public static final int ANY_NPC = -1;
+
+    private static final int INITIAL_HITS = 4096;
+
+    private final int[] npcIds = new int[CAPACITY];
+    private final String[] names = new String[CAPACITY];
+    private final int[] firstTicks = new int[CAPACITY];
+    private final int[] lastTicks = new int[CAPACITY];
+    private final int[] hits = new int[CAPACITY];
+    private final long[] damage = new long[CAPACITY];
+    private final int[] maxHits = new int[CAPACITY];
+
+    /**
+     * Arena position of each kill's first hit, and the number of hits it holds there.
+     */
+    private final long[] sequenceStarts = new long[CAPACITY];
+    private final int[] sequenceLengths = new int[CAPACITY];
+
+    /**
+     * Hit arena, a ring indexed by position modulo its length. Tick offsets are from the kill's first tick,
+     * clamped to a char; amounts are clamped to a short and hitsplat types stored as unsigned bytes.
+     */
+    private char[] hitTicks = new char[INITIAL_HITS];
+    private short[] hitAmounts = new short[INITIAL_HITS];
+    private byte[] hitTypes = new byte[INITIAL_HITS];
+
+    /**
+     * Hits written to the arena overall.
+     */
+    private long hitsWritten;
+
+    /**
+     * Hits on NPCs that are not yet a kill, in the order they landed.
+     */
+    private int[] openTargets = new int[64];
+    private int[] openTicks = new int[64];
+    private int[] openAmounts = new int[64];
+    private int[] openTypes = new int[64];
+    private int openCount;
+
+    /**
+     * Kills recorded overall, and the number of the oldest one still held.
+     */
+    private long recorded;
+    private long oldest;
+
+    /**
+     * Reused by the median query.
+     */
+    private int[] scratch = new int[64];
+
+    /**
+     * Adds a hit to the open sequence of the NPC.
+     */
+    public void hit(int npcIndex, int tick, int hitsplatType, int amount)
+    {
+        if (openCount == openTargets.length)
+        {
+            int capacity = openCount * 2;
+            openTargets = Arrays.copyOf(openTargets, capacity);
+            openTicks = Arrays.copyOf(openTicks, capacity);
+            openAmounts = Arrays.copyOf(openAmounts, capacity);
+            openTypes = Arrays.copyOf(openTypes, capacity);
+        }
+
+        openTargets[openCount] = npcIndex;
+        openTicks[openCount] = tick;
+        openAmounts[openCount] = amount;
+        openTypes[openCount] = hitsplatType;
+        openCount++;
+    }
+
+    /**
+     * True if the NPC has hits not yet closed into a kill.
+     */
+    public boolean isOpen(int npcIndex)
+    {
+        for (int i = 0; i < openCount; i++)
+        {
+            if (openTargets[i] == npcIndex)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Closes the NPC's open hits into a kill.
+     */
+    public void record(int npcIndex, int npcId, String name, int firstTick, int lastTick, int hitCount, long totalDamage,
+                       int maxHit)
+    {
+        int length = 0;
+        for (int i = 0; i < openCount; i++)
+        {
+            if (openTargets[i] == npcIndex)
+            {
+                length++;
+            }
+        }
+        length = Math.min(length, MAX_HITS);
+
+        if (recorded - oldest == CAPACITY)
+        {
+            dropOldest();
+        }
+        reserve(length);
+
+        int slot = (int) (recorded % CAPACITY);
+        npcIds[slot] = npcId;
+        names[slot] = name;
+        firstTicks[slot] = firstTick;
+        lastTicks[slot] = lastTick;
+        hits[slot] = hitCount;
+        damage[slot] = totalDamage;
+        maxHits[slot] = maxHit;
+        sequenceStarts[slot] = hitsWritten;
+        sequenceLengths[slot] = length;
+        recorded++;
+
+        // Moves the kill's hits to the arena and compacts the rest of the open buffer
+        int mask = hitTicks.length - 1;
+        int kept = 0;
+        int moved = 0;
+        for (int i = 0; i < openCount; i++)
+        {
+            if (openTargets[i] != npcIndex)
+            {
+                openTargets[kept] = openTargets[i];
+                openTicks[kept] = openTicks[i];
+                openAmounts[kept] = openAmounts[i];
+                openTypes[kept] = openTypes[i];
+                kept++;
+            }
+            else if (moved++ < length)
+            {
+                int position = (int) (hitsWritten & mask);
+                hitTicks[position] = (char) Math.max(0, Math.min(openTicks[i] - firstTick, Character.MAX_VALUE));
+                hitAmounts[position] = (short) Math.max(Short.MIN_VALUE, Math.min(openAmounts[i], Short.MAX_VALUE));
+                hitTypes[position] = (byte) openTypes[i];
+                hitsWritten++;
+            }
+        }
+        openCount = kept;
+    }
+
+    /**
+     * Drops the NPC's open hits without closing them into a kill.
+     */
+    public void discard(int npcIndex)
+    {
+        int kept = 0;
+        for (int i = 0; i < openCount; i++)
+        {
+            if (openTargets[i] != npcIndex)
+            {
+                openTargets[kept] = openTargets[i];
+                openTicks[kept] = openTicks[i];
+                openAmounts[kept] = openAmounts[i];
+                openTypes[kept] = openTypes[i];
+                kept++;
+            }
+        }
+        openCount = kept;
+    }
+
+    public void clear()
+    {
+        Arrays.fill(names, null);
+        recorded = 0;
+        oldest = 0;
+        hitsWritten = 0;
+        openCount = 0;
+    }
+
+    /**
+     * Number of kills held, at most {@link #CAPACITY}.
+     */
+    public int size()
+    {
+        return (int) (recorded - oldest);
+    }
+
+    public long getRecorded()
+    {
+        return recorded;
+    }
+
+    /**
+     * Ring slot of the i-th held kill, oldest first.
+     */
+    private int slot(int i)
+    {
+        return (int) ((oldest + i) % CAPACITY);
+    }
+
+    public int getNpcId(int i)
+    {
+        return npcIds[slot(i)];
+    }
+
+    public String getName(int i)
+    {
+        return names[slot(i)];
+    }
+
+    public int getFirstTick(int i)
+    {
+        return firstTicks[slot(i)];
+    }
+
+    public int getLastTick(int i)
+    {
+        return lastTicks[slot(i)];
+    }
+
+    public int getHits(int i)
+    {
+        return hits[slot(i)];
+    }
+
+    public long getDamage(int i)
+    {
+        return damage[slot(i)];
+    }
+
+    public int getMaxHit(int i)
+    {
+        return maxHits[slot(i)];
+    }
+
+    /**
+     * Number of hits in the i-th kill's sequence; the same as {@link #getHits(int)} unless it hit {@link #MAX_HITS}.
+     */
+    public int getSequenceLength(int i)
+    {
+        return sequenceLengths[slot(i)];
+    }
+
+    /**
+     * Ticks from the start of the i-th kill to its j-th hit.
+     */
+    public int getHitTickOffset(int i, int j)
+    {
+        return hitTicks[hitPosition(i, j)];
+    }
+
+    public int getHitAmount(int i, int j)
+    {
+        return hitAmounts[hitPosition(i, j)];
+    }
+
+    public int getHitsplatType(int i, int j)
+    {
+        return hitTypes[hitPosition(i, j)] & 0xFF;
+    }
+
+    /**
+     * Copies the hit counts of the most recent kills, newest first.
+     *
+     * @param npcId NPC id to take kills of, or {@link #ANY_NPC}
+     * @param limit most kills to copy, besides the length of the array
+     * @return the number of kills copied
+     */
+    public int getRecentHits(int npcId, int limit, int[] dest)
+    {
+        limit = Math.min(limit, dest.length);
+        int count = 0;
+        for (long kill = recorded - 1; kill >= oldest && count < limit; kill--)
+        {
+            int slot = (int) (kill % CAPACITY);
+            if (npcId == ANY_NPC || npcIds[slot] == npcId)
+            {
+                dest[count++] = hits[slot];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Number of held kills of the NPC id.
+     */
+    public int getKills(int npcId)
+    {
+        int count = 0;
+        for (long kill = oldest; kill < recorded; kill++)
+        {
+            if (npcIds[(int) (kill % CAPACITY)] == npcId)
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Median hits per kill over the most recent kills of the NPC id, or NaN if there are none.
+     *
+     * @param npcId NPC id to take kills of, or {@link #ANY_NPC}
+     * @param limit most kills to take
+     */
+    public double getMedianHits(int npcId, int limit)
+    {
+        if (scratch.length < Math.min(limit, size()))
+        {
+            scratch = new int[CAPACITY];
+        }
+
+        int count = getRecentHits(npcId, limit, scratch);
+        if (count == 0)
+        {
+            return Double.NaN;
+        }
+
+        Arrays.sort(scratch, 0, count);
+        int middle = count / 2;
+        return count % 2 == 1 ? scratch[middle] : (scratch[middle - 1] + scratch[middle]) / 2.0;
+    }
+
+    private int hitPosition(int i, int j)
+    {
+        return (int) ((sequenceStarts[slot(i)] + j) & (hitTicks.length - 1));
+    }
+
+    /**
+     * Makes room in the arena for a sequence, growing it or dropping the oldest kills.
+     */
+    private void reserve(int length)
+    {
+        while (hitsWritten + length - oldestHit() > hitTicks.length)
+        {
+            if (hitTicks.length < MAX_HITS)
+            {
+                grow();
+            }
+            else
+            {
+                dropOldest();
+            }
+        }
+    }
+
+    /**
+     * Arena position of the first hit still held.
+     */
+    private long oldestHit()
+    {
+        return oldest == recorded ? hitsWritten : sequenceStarts[(int) (oldest % CAPACITY)];
+    }
+
+    private void dropOldest()
+    {
+        names[(int) (oldest % CAPACITY)] = null;
+        oldest++;
+    }
+
+    private void grow()
+    {
+        int oldMask = hitTicks.length - 1;
+        int capacity = hitTicks.length * 2;
+        char[] ticks = new char[capacity];
+        short[] amounts = new short[capacity];
+        byte[] types = new byte[capacity];
+
+        // Positions keep their meaning, so held hits move to their slot in the larger ring
+        for (long position = oldestHit(); position < hitsWritten; position++)
+        {
+            int from = (int) (position & oldMask);
+            int to = (int) (position & (capacity - 1));
+            ticks[to] = hitTicks[from];
+            amounts[to] = hitAmounts[from];
+            types[to] = hitTypes[from];
+        }
+
+        hitTicks = ticks;
+        hitAmounts = amounts;
+        hitTypes = types;
+    }
+}
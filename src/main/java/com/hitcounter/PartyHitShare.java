@@ -0,0 +1,178 @@
+package com.hitcounter;
+
+import lombok.Getter;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shares the local count on the current target with the party, and keeps the counts the
+ * other members shared. Hits within a tick are already coalesced by the engine; this sends
+ * whatever changed since the last update at most once per {@link #MIN_SEND_INTERVAL_TICKS}.
+ * Only used on the client thread.
+ */
+@Singleton
+class PartyHitShare implements PartyTransport.Listener
+{
+    /**
+     * Ticks between updates sent to the party. Changes in between are held back and sent
+     * together with the next one.
+     */
+    static final int MIN_SEND_INTERVAL_TICKS = 2;
+
+    @Getter
+    static final class Member
+    {
+        private final String name;
+        private final int npcIndex;
+        private final int count;
+
+        private Member(String name, int npcIndex, int count)
+        {
+            this.name = name;
+            this.npcIndex = npcIndex;
+            this.count = count;
+        }
+    }
+
+    private final PartyTransport transport;
+
+    private final Map<Long, Member> members = new HashMap<>();
+
+    private boolean started;
+
+    private int sentIndex = HitCounterEngine.NO_TARGET;
+    private int sentCount;
+    private int sentTick = HitCounterEngine.NO_TICK;
+
+    /**
+     * Bumped whenever a member's count changes, so the overlay can tell when to rebuild.
+     */
+    @Getter
+    private int version;
+
+    @Inject
+    PartyHitShare(PartyTransport transport)
+    {
+        this.transport = transport;
+    }
+
+    void start()
+    {
+        if (!started)
+        {
+            started = true;
+            transport.start(this);
+        }
+    }
+
+    void stop()
+    {
+        if (started)
+        {
+            started = false;
+            transport.stop();
+            clear();
+        }
+    }
+
+    boolean isStarted()
+    {
+        return started;
+    }
+
+    /**
+     * Called once a tick after the batched hits are applied, with the local target and count on it.
+     */
+    void tick(int tick, int npcIndex, int count)
+    {
+        if (!started)
+        {
+            return;
+        }
+
+        if (!transport.isConnected())
+        {
+            clear();
+            return;
+        }
+
+        if (npcIndex == sentIndex && count == sentCount)
+        {
+            return;
+        }
+
+        if (sentTick != HitCounterEngine.NO_TICK && tick - sentTick < MIN_SEND_INTERVAL_TICKS)
+        {
+            // Still differs next tick, so it goes out then
+            return;
+        }
+
+        transport.send(new HitCountUpdate(npcIndex, count));
+        sentIndex = npcIndex;
+        sentCount = count;
+        sentTick = tick;
+    }
+
+    @Override
+    public void onUpdate(long memberId, String memberName, HitCountUpdate update)
+    {
+        if (!started)
+        {
+            return;
+        }
+
+        members.put(memberId, new Member(memberName, update.getNpcIndex(), update.getCount()));
+        version++;
+    }
+
+    @Override
+    public void onMemberLeft(long memberId)
+    {
+        if (members.remove(memberId) != null)
+        {
+            version++;
+        }
+    }
+
+    /**
+     * Members whose last update was on the given target, in name order.
+     */
+    List<Member> getMembersOn(int npcIndex)
+    {
+        if (npcIndex == HitCounterEngine.NO_TARGET || members.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+
+        List<Member> on = new ArrayList<>();
+        for (Member member : members.values())
+        {
+            if (member.npcIndex == npcIndex)
+            {
+                on.add(member);
+            }
+        }
+        on.sort((a, b) -> a.name.compareToIgnoreCase(b.name));
+        return on;
+    }
+
+    private void clear()
+    {
+        if (!members.isEmpty())
+        {
+            members.clear();
+            version++;
+        }
+
+        // Resend the current count when the party comes back
+        sentIndex = HitCounterEngine.NO_TARGET;
+        sentCount = 0;
+        sentTick = HitCounterEngine.NO_TICK;
+    }
+}
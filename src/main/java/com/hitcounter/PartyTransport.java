@@ -0,0 +1,33 @@
+package com.hitcounter;
+
+/**
+ * Carries {@link HitCountUpdate}s between party members.
+ * The plugin uses {@link RuneLitePartyTransport}; anything else, such as an
+ * in-process loopback, can stand in for it.
+ */
+interface PartyTransport
+{
+    interface Listener
+    {
+        /**
+         * Called on the client thread for updates from other members.
+         */
+        void onUpdate(long memberId, String memberName, HitCountUpdate update);
+
+        /**
+         * Called on the client thread when a member leaves the party.
+         */
+        void onMemberLeft(long memberId);
+    }
+
+    void start(Listener listener);
+
+    void stop();
+
+    /**
+     * Whether there is a party to send to.
+     */
+    boolean isConnected();
+
+    void send(HitCountUpdate update);
+}
@@ -0,0 +1,345 @@
+package com.hitcounter;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Personal records per NPC id: kills, fewest and average hits and attacks per kill.
+ * <p>
+ * Each NPC id has its own small file, read on the executor the first time the NPC is
+ * hit, so start-up reads nothing. Kills made before the file is read are kept and merged in
+ * once it is; if they have to be written before then, they are added to the file's counts on
+ * the executor instead of replacing them. At most {@link #CAPACITY} NPCs are held, least recently used first out.
+ * Changed records are written back on the executor {@link #FLUSH_DELAY_TICKS} after the
+ * first change, when evicted, and on {@link #flush()}.
+ * <p>
+ * File layout: magic, version, kills, fewest hits, fewest attacks as ints,
+ * then total hits and total attacks as longs, all big-endian.
+ */
+@Slf4j
+class PersonalRecords
+{
+    /**
+     * Best count of an NPC with no recorded kills. A kill always has at least one hit.
+     */
+    static final int NO_BEST = 0;
+
+    static final int CAPACITY = 64;
+
+    static final int FLUSH_DELAY_TICKS = 50;
+
+    private static final int MAGIC = 0x48435052; // "HCPR"
+    private static final int VERSION = 1;
+    private static final int FILE_SIZE = 36;
+
+    static final class Record
+    {
+        private final int npcId;
+
+        /**
+         * Set once the file was read and merged in. Until then the fields hold only this session's kills.
+         */
+        private boolean loaded;
+        private boolean dirty;
+
+        private int kills;
+        private int bestHits = NO_BEST;
+        private int bestAttacks = NO_BEST;
+        private long totalHits;
+        private long totalAttacks;
+
+        /**
+         * Kills and totals of this session already added to the file before it was read.
+         */
+        private int mergedKills;
+        private long mergedHits;
+        private long mergedAttacks;
+
+        private Record(int npcId)
+        {
+            this.npcId = npcId;
+        }
+
+        int getKills()
+        {
+            return kills;
+        }
+
+        /**
+         * Fewest hitsplats or attacks in one kill, or {@link #NO_BEST}.
+         */
+        int getBest(HitCounterConfig.CountMode mode)
+        {
+            return mode == HitCounterConfig.CountMode.ATTACKS ? bestAttacks : bestHits;
+        }
+
+        double getAverage(HitCounterConfig.CountMode mode)
+        {
+            long total = mode == HitCounterConfig.CountMode.ATTACKS ? totalAttacks : totalHits;
+            return kills == 0 ? 0 : (double) total / kills;
+        }
+
+        private void add(int kills, int bestHits, int bestAttacks, long totalHits, long totalAttacks)
+        {
+            this.kills += kills;
+            this.bestHits = min(this.bestHits, bestHits);
+            this.bestAttacks = min(this.bestAttacks, bestAttacks);
+            this.totalHits += totalHits;
+            this.totalAttacks += totalAttacks;
+        }
+
+        private static int min(int best, int count)
+        {
+            return best == NO_BEST || (count != NO_BEST && count < best) ? count : best;
+        }
+    }
+
+    private final File directory;
+    private final Executor executor;
+    private final Executor clientThread;
+
+    private final Map<Integer, Record> records = new LinkedHashMap<Integer, Record>(CAPACITY, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Record> eldest)
+        {
+            Record record = eldest.getValue();
+            // A record still being read would overwrite its file with this session's kills only
+            if (size() <= CAPACITY || !record.loaded)
+            {
+                return false;
+            }
+
+            if (record.dirty)
+            {
+                write(record);
+            }
+            return true;
+        }
+    };
+
+    /**
+     * Tick of the first change since the last write-back, or {@link HitCounterEngine#NO_TICK}.
+     */
+    private int dirtySince = HitCounterEngine.NO_TICK;
+
+    /**
+     * @param executor     runs the file reads and writes, one at a time in order, so a record's file is always
+     *                     read before anything is written to it
+     * @param clientThread runs the merge of a read file, on the thread calling the other methods
+     */
+    PersonalRecords(File directory, Executor executor, Executor clientThread)
+    {
+        this.directory = directory;
+        this.executor = executor;
+        this.clientThread = clientThread;
+    }
+
+    /**
+     * The NPC's records, reading them in the background the first time it is asked for.
+     */
+    Record get(int npcId)
+    {
+        Record record = records.get(npcId);
+        if (record == null)
+        {
+            record = new Record(npcId);
+            records.put(npcId, record);
+            load(record);
+        }
+        return record;
+    }
+
+    /**
+     * The NPC's records if they are held, without reading them.
+     */
+    Record peek(int npcId)
+    {
+        return records.get(npcId);
+    }
+
+    void recordKill(int npcId, int hits, int attacks, int tick)
+    {
+        Record record = get(npcId);
+        record.add(1, hits, attacks, hits, attacks);
+        record.dirty = true;
+        if (dirtySince == HitCounterEngine.NO_TICK)
+        {
+            dirtySince = tick;
+        }
+    }
+
+    /**
+     * Writes back changed records once they have waited long enough.
+     */
+    void tick(int tick)
+    {
+        if (dirtySince != HitCounterEngine.NO_TICK && tick - dirtySince >= FLUSH_DELAY_TICKS)
+        {
+            flush();
+        }
+    }
+
+    /**
+     * Writes back every changed record, merging those still being read into their file.
+     */
+    void flush()
+    {
+        for (Record record : records.values())
+        {
+            if (!record.dirty)
+            {
+                continue;
+            }
+
+            if (record.loaded)
+            {
+                write(record);
+            }
+            else
+            {
+                merge(record);
+            }
+        }
+        dirtySince = HitCounterEngine.NO_TICK;
+    }
+
+    /**
+     * Writes back the changed records, then drops them all.
+     */
+    void clear()
+    {
+        flush();
+        records.clear();
+    }
+
+    private File file(int npcId)
+    {
+        return new File(directory, npcId + ".rec");
+    }
+
+    private void load(Record record)
+    {
+        File file = file(record.npcId);
+        executor.execute(() ->
+        {
+            ByteBuffer buffer = read(file);
+            clientThread.execute(() ->
+            {
+                if (records.get(record.npcId) != record)
+                {
+                    // Cleared while reading
+                    return;
+                }
+
+                if (buffer != null)
+                {
+                    record.add(buffer.getInt(8), buffer.getInt(12), buffer.getInt(16), buffer.getLong(20), buffer.getLong(28));
+                }
+                record.loaded = true;
+            });
+        });
+    }
+
+    private static ByteBuffer read(File file)
+    {
+        if (!file.isFile())
+        {
+            return null;
+        }
+
+        try
+        {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            if (buffer.capacity() != FILE_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+            {
+                log.warn("Ignoring unrecognised personal records file {}", file);
+                return null;
+            }
+            return buffer;
+        }
+        catch (IOException ex)
+        {
+            log.warn("Unable to read personal records from {}", file, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Copies the record and writes the copy on the executor.
+     */
+    private void write(Record record)
+    {
+        record.dirty = false;
+        byte[] bytes = encode(record);
+        File file = file(record.npcId);
+        executor.execute(() -> store(file, bytes));
+    }
+
+    /**
+     * Adds the kills of a record whose file is still being read to the file's counts on the executor.
+     * The pending read saw the file before this, so the record still ends up holding everything once it lands.
+     */
+    private void merge(Record record)
+    {
+        record.dirty = false;
+
+        Record session = new Record(record.npcId);
+        session.add(record.kills - record.mergedKills, record.bestHits, record.bestAttacks,
+                record.totalHits - record.mergedHits, record.totalAttacks - record.mergedAttacks);
+        record.mergedKills = record.kills;
+        record.mergedHits = record.totalHits;
+        record.mergedAttacks = record.totalAttacks;
+
+        File file = file(record.npcId);
+        executor.execute(() ->
+        {
+            ByteBuffer buffer = read(file);
+            if (buffer != null)
+            {
+                session.add(buffer.getInt(8), buffer.getInt(12), buffer.getInt(16), buffer.getLong(20), buffer.getLong(28));
+            }
+            store(file, encode(session));
+        });
+    }
+
+    private static byte[] encode(Record record)
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(FILE_SIZE);
+        buffer.putInt(MAGIC).putInt(VERSION)
+                .putInt(record.kills).putInt(record.bestHits).putInt(record.bestAttacks)
+                .putLong(record.totalHits).putLong(record.totalAttacks);
+        return buffer.array();
+    }
+
+    /**
+     * Replaces the file with the bytes. Executor only.
+     */
+    private void store(File file, byte[] bytes)
+    {
+        if (!directory.isDirectory() && !directory.mkdirs())
+        {
+            log.warn("Unable to create personal records directory {}", directory);
+            return;
+        }
+
+        File temp = new File(directory, file.getName() + ".tmp");
+        try
+        {
+            Files.write(temp.toPath(), bytes);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (IOException ex)
+        {
+            log.warn("Unable to write personal records to {}", file, ex);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.hitcounter;
+
+import java.util.Arrays;
+
+/**
+ * Counted hits and their damage over the last 10, 100 and 1000 game ticks.
+ * <p>
+ * Hits go into one bucket per tick in a fixed ring, so memory is the same however long the
+ * session runs. Each window keeps running sums: advancing a tick subtracts the bucket that
+ * falls out of every window, and reading a window is a division.
+ * Not thread safe; the engine drives it from the client thread.
+ */
+public final class RollingRates
+{
+    /**
+     * Window lengths in ticks, in {@link HitCounterConfig.RateWindow} order after OFF.
+     */
+    private static final int[] WINDOW_TICKS = {10, 100, 1000};
+
+    /**
+     * Bucket count, a power of two above the longest window.
+     */
+    private static final int CAPACITY = 1024;
+    private static final int MASK = CAPACITY - 1;
+
+    private static final double TICKS_PER_MINUTE = 100;
+
+    private final int[] hits = new int[CAPACITY];
+    private final long[] damage = new long[CAPACITY];
+
+    private final int[] windowHits = new int[WINDOW_TICKS.length];
+    private final long[] windowDamage = new long[WINDOW_TICKS.length];
+
+    /**
+     * Bucket of the current tick, the tick it is for, and the ticks seen since the first one.
+     */
+    private int head;
+    private int currentTick = HitCounterEngine.NO_TICK;
+    private int elapsed;
+
+    /**
+     * Moves to the given tick, emptying the buckets of the ticks in between.
+     */
+    public void advance(int tick)
+    {
+        if (currentTick == HitCounterEngine.NO_TICK)
+        {
+            currentTick = tick;
+            elapsed = 1;
+            return;
+        }
+
+        int steps = tick - currentTick;
+        if (steps <= 0)
+        {
+            return;
+        }
+
+        currentTick = tick;
+        elapsed = (int) Math.min((long) elapsed + steps, Integer.MAX_VALUE);
+        if (steps >= CAPACITY)
+        {
+            // Every window is past all recorded ticks
+            clearBuckets();
+            return;
+        }
+
+        for (int step = 0; step < steps; step++)
+        {
+            head = (head + 1) & MASK;
+            for (int w = 0; w < WINDOW_TICKS.length; w++)
+            {
+                int leaving = (head - WINDOW_TICKS[w]) & MASK;
+                windowHits[w] -= hits[leaving];
+                windowDamage[w] -= damage[leaving];
+            }
+            hits[head] = 0;
+            damage[head] = 0;
+        }
+    }
+
+    /**
+     * Adds a counted hit to the current tick.
+     */
+    public void record(int amount)
+    {
+        hits[head]++;
+        damage[head] += amount;
+        for (int w = 0; w < WINDOW_TICKS.length; w++)
+        {
+            windowHits[w]++;
+            windowDamage[w] += amount;
+        }
+    }
+
+    public void clear()
+    {
+        clearBuckets();
+        head = 0;
+        currentTick = HitCounterEngine.NO_TICK;
+        elapsed = 0;
+    }
+
+    public double getHitsPerMinute(HitCounterConfig.RateWindow window)
+    {
+        int w = window.ordinal() - 1;
+        return w < 0 || elapsed == 0 ? 0 : windowHits[w] * TICKS_PER_MINUTE / span(w);
+    }
+
+    public double getDamagePerTick(HitCounterConfig.RateWindow window)
+    {
+        int w = window.ordinal() - 1;
+        return w < 0 || elapsed == 0 ? 0 : (double) windowDamage[w] / span(w);
+    }
+
+    /**
+     * Ticks the window covers, shorter than its length early in the session.
+     */
+    private int span(int w)
+    {
+        return Math.min(WINDOW_TICKS[w], elapsed);
+    }
+
+    private void clearBuckets()
+    {
+        Arrays.fill(hits, 0);
+        Arrays.fill(damage, 0);
+        Arrays.fill(windowHits, 0);
+        Arrays.fill(windowDamage, 0);
+    }
+}
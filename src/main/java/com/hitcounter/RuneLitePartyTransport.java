@@ -0,0 +1,111 @@
+package com.hitcounter;
+
+import net.runelite.client.callback.ClientThread;
+import net.runelite.client.eventbus.EventBus;
+import net.runelite.client.eventbus.Subscribe;
+import net.runelite.client.party.PartyMember;
+import net.runelite.client.party.PartyService;
+import net.runelite.client.party.WSClient;
+import net.runelite.client.party.events.UserPart;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * {@link PartyTransport} over RuneLite's party service.
+ */
+@Singleton
+class RuneLitePartyTransport implements PartyTransport
+{
+    private final PartyService partyService;
+    private final WSClient wsClient;
+    private final EventBus eventBus;
+    private final ClientThread clientThread;
+
+    private Listener listener;
+
+    @Inject
+    RuneLitePartyTransport(PartyService partyService, WSClient wsClient, EventBus eventBus, ClientThread clientThread)
+    {
+        this.partyService = partyService;
+        this.wsClient = wsClient;
+        this.eventBus = eventBus;
+        this.clientThread = clientThread;
+    }
+
+    @Override
+    public void start(Listener listener)
+    {
+        if (this.listener != null)
+        {
+            return;
+        }
+
+        this.listener = listener;
+        wsClient.registerMessage(HitCountUpdate.class);
+        eventBus.register(this);
+    }
+
+    @Override
+    public void stop()
+    {
+        if (listener == null)
+        {
+            return;
+        }
+
+        eventBus.unregister(this);
+        wsClient.unregisterMessage(HitCountUpdate.class);
+        listener = null;
+    }
+
+    @Override
+    public boolean isConnected()
+    {
+        return partyService.isInParty();
+    }
+
+    @Override
+    public void send(HitCountUpdate update)
+    {
+        partyService.send(update);
+    }
+
+    @Subscribe
+    public void onHitCountUpdate(HitCountUpdate update)
+    {
+        PartyMember local = partyService.getLocalMember();
+        if (local != null && local.getMemberId() == update.getMemberId())
+        {
+            return;
+        }
+
+        // Party messages arrive off the client thread
+        clientThread.invokeLater(() ->
+        {
+            Listener listener = this.listener;
+            if (listener == null)
+            {
+                return;
+            }
+
+            PartyMember member = partyService.getMemberById(update.getMemberId());
+            String name = member != null ? member.getDisplayName() : null;
+            listener.onUpdate(update.getMemberId(), name != null ? name : "Party member", update);
+        });
+    }
+
+    @Subscribe
+    public void onUserPart(UserPart event)
+    {
+        long memberId = event.getMemberId();
+        clientThread.invokeLater(() ->
+        {
+            Listener listener = this.listener;
+            if (listener != null)
+            {
+                listener.onMemberLeft(memberId);
+            }
+        });
+    }
+}
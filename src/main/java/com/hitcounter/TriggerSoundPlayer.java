@@ -0,0 +1,294 @@
+package com.hitcounter;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Singleton;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Clip;
+import javax.sound.sampled.FloatControl;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Plays the user's trigger sound on a dedicated audio thread.
+ * <p>
+ * The file is decoded once when the config changes and opened into a small pool of
+ * {@link Clip}s, so overlapping triggers do not cut each other off. Triggering costs the
+ * client thread a single queue offer; decoding, I/O and line handling all happen on the
+ * audio thread. When no sound file is set, it cannot be read, or no mixer is available,
+ * {@link #play()} returns false and the caller falls back to the game sound.
+ */
+@Slf4j
+@Singleton
+class TriggerSoundPlayer
+{
+    private static final int POOL_SIZE = 4;
+
+    private static final int QUEUE_SIZE = 16;
+
+    private static final long STOP_TIMEOUT_MS = 1000;
+
+    private final BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+
+    private final Runnable playNext = this::playNext;
+
+    /**
+     * Set by the audio thread once the clips are open.
+     */
+    private volatile boolean ready;
+
+    /**
+     * Last requested file and volume, so unchanged config does not reload. Client thread only.
+     */
+    private File requestedFile;
+    private int requestedVolume = -1;
+
+    private Thread thread;
+
+    /**
+     * Audio thread only.
+     */
+    private final Clip[] clips = new Clip[POOL_SIZE];
+    private int openClips;
+    private int nextClip;
+
+    void start()
+    {
+        if (thread != null)
+        {
+            return;
+        }
+
+        thread = new Thread(this::run, "hit-counter-audio");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+
+        // Picks up a sound requested while the audio thread was not running
+        if (requestedFile != null)
+        {
+            File file = requestedFile;
+            int volume = requestedVolume;
+            queue.offer(() -> open(file, volume));
+        }
+    }
+
+    /**
+     * Stops the audio thread, which closes the clips on its way out.
+     */
+    void stop()
+    {
+        if (thread == null)
+        {
+            return;
+        }
+
+        ready = false;
+        queue.clear();
+        thread.interrupt();
+        try
+        {
+            // Wait for the clips to close so a restart does not race the old thread
+            thread.join(STOP_TIMEOUT_MS);
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        thread = null;
+        requestedFile = null;
+        requestedVolume = -1;
+    }
+
+    /**
+     * Decodes the file into the clip pool on the audio thread, unless it is already loaded.
+     * Without a running audio thread there are no clips to replace, so only the request is kept.
+     *
+     * @param file   the sound file, or null to use the game sound
+     * @param volume volume in percent
+     */
+    void load(File file, int volume)
+    {
+        if (Objects.equals(file, requestedFile) && volume == requestedVolume)
+        {
+            return;
+        }
+
+        requestedFile = file;
+        requestedVolume = volume;
+        ready = false;
+
+        if (thread == null)
+        {
+            return;
+        }
+
+        Runnable load = () -> open(file, volume);
+        if (!queue.offer(load))
+        {
+            // Loads still waiting are superseded by this one, and queued plays are already stale
+            queue.clear();
+            if (!queue.offer(load) && file != null)
+            {
+                log.warn("Audio queue full, unable to load trigger sound {}", file);
+            }
+        }
+    }
+
+    /**
+     * Queues the trigger sound. Never blocks.
+     *
+     * @return false if no sound is loaded and the game sound should be played instead
+     */
+    boolean play()
+    {
+        if (!ready)
+        {
+            return false;
+        }
+
+        // A full queue means the audio thread is far behind; the extra sound is not worth waiting for
+        queue.offer(playNext);
+        return true;
+    }
+
+    private void run()
+    {
+        try
+        {
+            while (!Thread.currentThread().isInterrupted())
+            {
+                queue.take().run();
+            }
+        }
+        catch (InterruptedException ex)
+        {
+            // Stopped
+        }
+        finally
+        {
+            closeClips();
+        }
+    }
+
+    private void playNext()
+    {
+        if (openClips == 0)
+        {
+            return;
+        }
+
+        Clip clip = clips[nextClip];
+        nextClip = (nextClip + 1) % openClips;
+
+        clip.stop();
+        clip.setFramePosition(0);
+        clip.start();
+    }
+
+    private void open(File file, int volume)
+    {
+        closeClips();
+        if (file == null)
+        {
+            return;
+        }
+
+        final AudioFormat format;
+        final byte[] data;
+        try
+        {
+            AudioInputStream stream = AudioSystem.getAudioInputStream(file);
+            try
+            {
+                AudioFormat source = stream.getFormat();
+                if (source.getEncoding() != AudioFormat.Encoding.PCM_SIGNED)
+                {
+                    AudioFormat pcm = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, source.getSampleRate(), 16,
+                            source.getChannels(), source.getChannels() * 2, source.getSampleRate(), false);
+                    stream = AudioSystem.getAudioInputStream(pcm, stream);
+                }
+
+                format = stream.getFormat();
+                data = readFully(stream);
+            }
+            finally
+            {
+                stream.close();
+            }
+        }
+        catch (UnsupportedAudioFileException | IOException | IllegalArgumentException ex)
+        {
+            log.warn("Unable to read trigger sound {}", file, ex);
+            return;
+        }
+
+        try
+        {
+            for (int i = 0; i < POOL_SIZE; i++)
+            {
+                Clip clip = AudioSystem.getClip();
+                clip.open(format, data, 0, data.length);
+                setVolume(clip, volume);
+                clips[openClips++] = clip;
+            }
+        }
+        catch (LineUnavailableException | IllegalArgumentException | SecurityException ex)
+        {
+            // Headless machines and systems without a sound card end up here
+            log.debug("No audio line available for trigger sound, using the game sound", ex);
+            if (openClips == 0)
+            {
+                return;
+            }
+        }
+
+        nextClip = 0;
+        ready = true;
+    }
+
+    private void closeClips()
+    {
+        ready = false;
+        for (int i = 0; i < openClips; i++)
+        {
+            clips[i].close();
+            clips[i] = null;
+        }
+        openClips = 0;
+        nextClip = 0;
+    }
+
+    private static void setVolume(Clip clip, int volume)
+    {
+        if (!clip.isControlSupported(FloatControl.Type.MASTER_GAIN))
+        {
+            return;
+        }
+
+        FloatControl gain = (FloatControl) clip.getControl(FloatControl.Type.MASTER_GAIN);
+        float db = volume <= 0 ? gain.getMinimum() : (float) (20 * Math.log10(volume / 100.0));
+        gain.setValue(Math.max(gain.getMinimum(), Math.min(gain.getMaximum(), db)));
+    }
+
+    private static byte[] readFully(AudioInputStream stream) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = stream.read(buffer)) > 0)
+        {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
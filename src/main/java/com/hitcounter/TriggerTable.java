@@ -0,0 +1,395 @@
+package com.hitcounter;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Trigger rules compiled into a dispatch table.
+ * <p>
+ * Exact counts and ranges are expanded into a table indexed by hit count, holding the rules for
+ * each count back to back. Every-N rules are kept in a short list of moduli. Checking a hit
+ * therefore only looks at the rules for that count and the modulus rules.
+ * <p>
+ * Rules are written one per line (or separated by {@code ;}) as {@code count: effect[: npc]},
+ * where count is {@code 5}, {@code 10-15} or {@code every 4}, effect is a
+ * {@link HitCounterConfig.TriggerEffectMode} and npc is an NPC id or name. Rules for an NPC
+ * name only match once the name has been resolved for that NPC id with {@link #resolveName}.
+ */
+@Slf4j
+public final class TriggerTable
+{
+    /**
+     * Highest count exact and range rules can target, which bounds the table size.
+     */
+    static final int MAX_COUNT = 10000;
+
+    private static final int ANY = -1;
+
+    /**
+     * Stored for NPC names that match no rule, so the name is not looked at again.
+     */
+    private static final int NO_GROUP = -2;
+
+    private static final String EVERY = "every";
+
+    private final HitCounterConfig.TriggerEffectMode[] effects;
+    private final int[] npcIds;
+    private final int[] nameGroups;
+
+    /**
+     * Rules for count {@code c} are {@code exactRules[exactStart[c]]} up to {@code exactRules[exactStart[c + 1]]}.
+     */
+    private final int[] exactStart;
+    private final int[] exactRules;
+    private final int maxCount;
+
+    private final int[] moduli;
+    private final int[] modulusRules;
+
+    /**
+     * Distinct lowercase NPC names used by rules, indexed by name group.
+     */
+    private final String[] names;
+
+    /**
+     * Name group plus one per NPC id, filled in by {@link #resolveName}. Client thread only.
+     */
+    private final IntIntMap npcNameGroups = new IntIntMap(16);
+
+    private TriggerTable(List<Rule> rules, List<String> names)
+    {
+        int size = rules.size();
+        effects = new HitCounterConfig.TriggerEffectMode[size];
+        npcIds = new int[size];
+        nameGroups = new int[size];
+
+        int max = 0;
+        int exactEntries = 0;
+        int modulusCount = 0;
+        for (int i = 0; i < size; i++)
+        {
+            Rule rule = rules.get(i);
+            effects[i] = rule.effect;
+            npcIds[i] = rule.npcId;
+            nameGroups[i] = rule.nameGroup;
+
+            if (rule.modulus > 0)
+            {
+                modulusCount++;
+            }
+            else
+            {
+                max = Math.max(max, rule.to);
+                exactEntries += rule.to - rule.from + 1;
+            }
+        }
+
+        maxCount = max;
+        exactStart = new int[max + 2];
+        exactRules = new int[exactEntries];
+        moduli = new int[modulusCount];
+        modulusRules = new int[modulusCount];
+
+        // Count the rules per hit count, turn the counts into offsets, then place the rules
+        for (Rule rule : rules)
+        {
+            if (rule.modulus == 0)
+            {
+                for (int count = rule.from; count <= rule.to; count++)
+                {
+                    exactStart[count + 1]++;
+                }
+            }
+        }
+        for (int count = 1; count < exactStart.length; count++)
+        {
+            exactStart[count] += exactStart[count - 1];
+        }
+
+        int[] filled = new int[max + 1];
+        int m = 0;
+        for (int i = 0; i < size; i++)
+        {
+            Rule rule = rules.get(i);
+            if (rule.modulus > 0)
+            {
+                moduli[m] = rule.modulus;
+                modulusRules[m++] = i;
+                continue;
+            }
+
+            for (int count = rule.from; count <= rule.to; count++)
+            {
+                exactRules[exactStart[count] + filled[count]++] = i;
+            }
+        }
+
+        this.names = names.toArray(new String[0]);
+    }
+
+    /**
+     * Compiles the rule list together with the single trigger from the older config options.
+     */
+    public static TriggerTable compile(String rules, int legacyCount, HitCounterConfig.AudioTriggerMode legacyMode,
+                                       HitCounterConfig.TriggerEffectMode legacyEffect)
+    {
+        List<Rule> compiled = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+
+        if (legacyCount > 0 && legacyEffect != HitCounterConfig.TriggerEffectMode.NONE)
+        {
+            Rule rule = legacyMode == HitCounterConfig.AudioTriggerMode.EVERY
+                    ? Rule.every(legacyCount, legacyEffect)
+                    : Rule.range(legacyCount, legacyCount, legacyEffect);
+            if (rule != null)
+            {
+                compiled.add(rule);
+            }
+        }
+
+        if (rules != null)
+        {
+            for (String line : rules.split("[\\n;]"))
+            {
+                String text = line.trim();
+                if (text.isEmpty())
+                {
+                    continue;
+                }
+
+                Rule rule = parse(text, names);
+                if (rule == null)
+                {
+                    log.warn("Ignoring invalid trigger rule \"{}\"", text);
+                }
+                else if (rule.effect != HitCounterConfig.TriggerEffectMode.NONE)
+                {
+                    compiled.add(rule);
+                }
+            }
+        }
+
+        return new TriggerTable(compiled, names);
+    }
+
+    public int size()
+    {
+        return effects.length;
+    }
+
+    /**
+     * Effects of every rule matching the count on the given NPC, as a mask of
+     * {@link HitCounterConfig.TriggerEffectMode} ordinals.
+     */
+    public int effectsAt(int count, int npcId)
+    {
+        if (count <= 0)
+        {
+            return 0;
+        }
+
+        int mask = 0;
+        if (count <= maxCount)
+        {
+            for (int i = exactStart[count], end = exactStart[count + 1]; i < end; i++)
+            {
+                int rule = exactRules[i];
+                if (matchesNpc(rule, npcId))
+                {
+                    mask |= 1 << effects[rule].ordinal();
+                }
+            }
+        }
+
+        for (int i = 0; i < moduli.length; i++)
+        {
+            int rule = modulusRules[i];
+            if (count % moduli[i] == 0 && matchesNpc(rule, npcId))
+            {
+                mask |= 1 << effects[rule].ordinal();
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Effects of every rule matching any count the counter passed going from {@code from}
+     * (exclusive) to {@code to} (inclusive), so a batch of hits cannot skip over a trigger.
+     */
+    public int effectsBetween(int from, int to, int npcId)
+    {
+        if (effects.length == 0)
+        {
+            return 0;
+        }
+
+        int mask = 0;
+        for (int count = Math.max(from, 0) + 1; count <= to; count++)
+        {
+            mask |= effectsAt(count, npcId);
+        }
+        return mask;
+    }
+
+    /**
+     * Whether a highlight rule matches the count on the given NPC.
+     */
+    public boolean isHighlighted(int count, int npcId)
+    {
+        return (effectsAt(count, npcId) & 1 << HitCounterConfig.TriggerEffectMode.HIGHLIGHT.ordinal()) != 0;
+    }
+
+    /**
+     * Whether {@link #resolveName} still needs to be called for the NPC id.
+     */
+    public boolean needsName(int npcId)
+    {
+        return names.length > 0 && !npcNameGroups.containsKey(npcId);
+    }
+
+    public void resolveName(int npcId, String npcName)
+    {
+        int group = NO_GROUP;
+        if (npcName != null)
+        {
+            String name = npcName.toLowerCase(Locale.ROOT);
+            for (int i = 0; i < names.length; i++)
+            {
+                if (names[i].equals(name))
+                {
+                    group = i;
+                    break;
+                }
+            }
+        }
+        npcNameGroups.put(npcId, group + 1);
+    }
+
+    private boolean matchesNpc(int rule, int npcId)
+    {
+        int id = npcIds[rule];
+        if (id != ANY && id != npcId)
+        {
+            return false;
+        }
+
+        int group = nameGroups[rule];
+        return group == ANY || group == npcNameGroups.get(npcId) - 1;
+    }
+
+    private static Rule parse(String text, List<String> names)
+    {
+        String[] parts = text.split(":");
+        if (parts.length < 2 || parts.length > 3)
+        {
+            return null;
+        }
+
+        HitCounterConfig.TriggerEffectMode effect;
+        try
+        {
+            effect = HitCounterConfig.TriggerEffectMode.valueOf(parts[1].trim().toUpperCase(Locale.ROOT));
+        }
+        catch (IllegalArgumentException ex)
+        {
+            return null;
+        }
+
+        String condition = parts[0].trim().toLowerCase(Locale.ROOT);
+        Rule rule;
+        if (condition.startsWith(EVERY))
+        {
+            rule = Rule.every(parseCount(condition.substring(EVERY.length()).trim()), effect);
+        }
+        else
+        {
+            int dash = condition.indexOf('-');
+            int from = parseCount(dash < 0 ? condition : condition.substring(0, dash).trim());
+            int to = dash < 0 ? from : parseCount(condition.substring(dash + 1).trim());
+            rule = Rule.range(from, to, effect);
+        }
+
+        if (rule == null || parts.length == 2)
+        {
+            return rule;
+        }
+
+        String npc = parts[2].trim().toLowerCase(Locale.ROOT);
+        if (npc.isEmpty())
+        {
+            return null;
+        }
+
+        int npcId = parseCount(npc);
+        if (npcId > 0)
+        {
+            rule.npcId = npcId;
+        }
+        else
+        {
+            int group = names.indexOf(npc);
+            if (group < 0)
+            {
+                group = names.size();
+                names.add(npc);
+            }
+            rule.nameGroup = group;
+        }
+        return rule;
+    }
+
+    /**
+     * Positive number, or 0 when the text is not one.
+     */
+    private static int parseCount(String text)
+    {
+        if (text.isEmpty() || text.length() > 9)
+        {
+            return 0;
+        }
+
+        for (int i = 0; i < text.length(); i++)
+        {
+            if (!Character.isDigit(text.charAt(i)))
+            {
+                return 0;
+            }
+        }
+        return Integer.parseInt(text);
+    }
+
+    private static final class Rule
+    {
+        private final HitCounterConfig.TriggerEffectMode effect;
+        private final int from;
+        private final int to;
+        private final int modulus;
+        private int npcId = ANY;
+        private int nameGroup = ANY;
+
+        private Rule(HitCounterConfig.TriggerEffectMode effect, int from, int to, int modulus)
+        {
+            this.effect = effect;
+            this.from = from;
+            this.to = to;
+            this.modulus = modulus;
+        }
+
+        private static Rule every(int modulus, HitCounterConfig.TriggerEffectMode effect)
+        {
+            return modulus > 0 ? new Rule(effect, 0, 0, modulus) : null;
+        }
+
+        private static Rule range(int from, int to, HitCounterConfig.TriggerEffectMode effect)
+        {
+            if (from <= 0 || to < from || from > MAX_COUNT)
+            {
+                return null;
+            }
+            return new Rule(effect, from, Math.min(to, MAX_COUNT), 0);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.hitcounter;
+
+import net.runelite.api.Client;
+import net.runelite.api.Hitsplat;
+import net.runelite.api.NPC;
+import net.runelite.api.events.GameTick;
+import net.runelite.api.events.HitsplatApplied;
+import net.runelite.client.ui.overlay.tooltip.TooltipManager;
+
+import java.awt.*;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * A plugin wired to stubbed RuneLite types, for driving the hot paths outside the client.
+ * Config values default to the {@link HitCounterConfig} defaults and can be overridden by key.
+ */
+final class BenchmarkFixture
+{
+    static final int CANVAS_WIDTH = 765;
+    static final int CANVAS_HEIGHT = 503;
+
+    private final TestConfig testConfig = new TestConfig();
+    final HitCounterConfig config = testConfig.config;
+    final Client client;
+    final Canvas canvas;
+
+    final HitCounterPlugin plugin;
+    final HitCounterOverlay overlay;
+    final HitCounterFlash flash;
+    final HitCounterMetrics metrics;
+
+    /**
+     * Party the plugin shares its count with once {@code shareWithParty} is set.
+     */
+    final LoopbackPartyTransport.Hub party = new LoopbackPartyTransport.Hub();
+    final LoopbackPartyTransport partyTransport = new LoopbackPartyTransport(party, 1, "Local");
+
+    private static final GameTick GAME_TICK = new GameTick();
+
+    int tickCount;
+    int gameCycle;
+
+    BenchmarkFixture()
+    {
+        canvas = new Canvas();
+        canvas.setSize(CANVAS_WIDTH, CANVAS_HEIGHT);
+
+        client = stub(Client.class, (proxy, method, args) ->
+        {
+            switch (method.getName())
+            {
+                case "getTickCount":
+                    return tickCount;
+                case "getGameCycle":
+                    return gameCycle;
+                case "getCanvas":
+                    return canvas;
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+
+        plugin = new HitCounterPlugin();
+        metrics = new HitCounterMetrics();
+        overlay = new HitCounterOverlay(plugin, client, new TooltipManager(), metrics);
+        flash = new HitCounterFlash(client, metrics);
+
+        inject(plugin, "client", client);
+        inject(plugin, "config", config);
+        inject(plugin, "overlay", overlay);
+        inject(plugin, "flashOverlay", flash);
+        // There is no overlay manager to add the flash overlay to on the first flash
+        inject(plugin, "flashOverlayAdded", true);
+        // Only touched in infobox display mode, which the benchmarks do not use
+        inject(plugin, "metrics", metrics);
+        inject(plugin, "infoBoxController", new HitCounterInfoBoxController(plugin, null, null, metrics));
+        // Never started, so the SOUND effect takes the game sound fallback
+        inject(plugin, "soundPlayer", new TriggerSoundPlayer());
+        inject(plugin, "partyShare", new PartyHitShare(partyTransport));
+        HitLogWriter hitLog = new HitLogWriter(new File(System.getProperty("java.io.tmpdir"), "hit-counter-bench"), Runnable::run);
+        inject(plugin, "hitLog", hitLog);
+        // Drains the hit events like the plugin's worker does; the log is never opened
+        HitEventWorker hitWorker = new HitEventWorker(plugin.getHitEvents(), hitLog);
+        inject(plugin, "hitWorker", hitWorker);
+        hitWorker.start();
+        inject(plugin, "records", new PersonalRecords(new File(System.getProperty("java.io.tmpdir"), "hit-counter-bench-records"),
+                Runnable::run, Runnable::run));
+        applyConfig();
+    }
+
+    /**
+     * Overrides a config value and republishes the settings snapshot.
+     */
+    void set(String key, Object value)
+    {
+        testConfig.set(key, value);
+        applyConfig();
+    }
+
+    void applyConfig()
+    {
+        invoke(plugin, "loadSettings", HitCounterSettings.class, testConfig.settings());
+    }
+
+    /**
+     * Advances to the next game tick, which applies the hitsplats batched during the last one.
+     */
+    void gameTick()
+    {
+        tickCount++;
+        plugin.onGameTick(GAME_TICK);
+    }
+
+    static NPC npc(int id, int index, String name)
+    {
+        return stub(NPC.class, (proxy, method, args) ->
+        {
+            switch (method.getName())
+            {
+                case "getId":
+                    return id;
+                case "getIndex":
+                    return index;
+                case "getName":
+                    return name;
+                case "getCombatLevel":
+                    return 100;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    static HitsplatApplied hitsplat(NPC npc, int hitsplatType, int amount)
+    {
+        HitsplatApplied event = new HitsplatApplied();
+        event.setActor(npc);
+        event.setHitsplat(new Hitsplat(hitsplatType, amount, 0));
+        return event;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, InvocationHandler handler)
+    {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object defaultValue(Class<?> type)
+    {
+        if (type == boolean.class)
+        {
+            return false;
+        }
+        if (type == int.class)
+        {
+            return 0;
+        }
+        if (type == long.class)
+        {
+            return 0L;
+        }
+        if (type == double.class)
+        {
+            return 0d;
+        }
+        if (type == float.class)
+        {
+            return 0f;
+        }
+        return null;
+    }
+
+    static <T> void invoke(Object target, String methodName, Class<T> parameterType, T argument)
+    {
+        try
+        {
+            Method method = target.getClass().getDeclaredMethod(methodName, parameterType);
+            method.setAccessible(true);
+            method.invoke(target, argument);
+        }
+        catch (ReflectiveOperationException ex)
+        {
+            throw new IllegalStateException("Unable to call " + methodName, ex);
+        }
+    }
+
+    static void inject(Object target, String fieldName, Object value)
+    {
+        try
+        {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        }
+        catch (ReflectiveOperationException ex)
+        {
+            throw new IllegalStateException("Unable to set " + fieldName, ex);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.hitcounter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CounterSnapshotTest
+{
+    private static final int NPC_INDEX = 12;
+    private static final int NPC_ID = 2042;
+    private static final long SAVED_AT = 1_700_000_000_000L;
+
+    private HitCounterSettings settings;
+    private File directory;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        settings = new TestConfig().set("counterScope", HitCounterConfig.CounterScope.TARGET).settings();
+
+        directory = Files.createTempDirectory("hitcounter").toFile();
+        file = new File(directory, "state.bin");
+    }
+
+    @After
+    public void tearDown()
+    {
+        file.delete();
+        directory.delete();
+    }
+
+    @Test
+    public void roundTripsTheCounters()
+    {
+        HitCounterEngine saved = engine();
+        saved.tick(100);
+        saved.hitsplat(NPC_INDEX, NPC_ID, 12, 10);
+        saved.hitsplat(NPC_INDEX, NPC_ID, 12, 15);
+        saved.flush();
+        saved.tick(101);
+        saved.hitsplat(NPC_INDEX, NPC_ID, 12, 0);
+        saved.flush();
+        saved.tick(104);
+
+        CounterSnapshot.capture(saved, SAVED_AT).write(file);
+        CounterSnapshot snapshot = CounterSnapshot.read(file);
+        assertNotNull(snapshot);
+
+        HitCounterEngine restored = engine();
+        restored.tick(500);
+        // Restored ten ticks' worth of wall clock time after the save
+        snapshot.restore(restored, SAVED_AT + 10 * 600 + 599);
+
+        assertEquals(3, restored.getAggregateHits());
+        assertEquals(2, restored.getAggregateAttacks());
+        assertEquals(NPC_INDEX, restored.getTargetIndex());
+        assertEquals(NPC_ID, restored.getTargetNpcId(NPC_INDEX));
+        assertEquals(3, restored.getTargetCount(NPC_INDEX, false));
+        assertEquals(2, restored.getTargetCount(NPC_INDEX, true));
+        // The last hit was three ticks before the save, and ten more ticks have passed since
+        assertEquals(487, restored.getLastAttackTick());
+    }
+
+    @Test
+    public void keepsCountingTheSameNpc()
+    {
+        HitCounterEngine restored = restoredEngine();
+        restored.hitsplat(NPC_INDEX, NPC_ID, 12, 10);
+        restored.flush();
+
+        assertEquals(3, restored.getTargetCount(NPC_INDEX, false));
+    }
+
+    @Test
+    public void dropsTheCountsWhenTheIndexBelongsToAnotherNpc()
+    {
+        HitCounterEngine restored = restoredEngine();
+        restored.hitsplat(NPC_INDEX, NPC_ID + 1, 12, 10);
+        restored.flush();
+
+        assertEquals(1, restored.getTargetCount(NPC_INDEX, false));
+        assertEquals(1, restored.getTargetCount(NPC_INDEX, true));
+        assertEquals(NPC_ID + 1, restored.getTargetNpcId(NPC_INDEX));
+        // Counts across all targets are not tied to an NPC
+        assertEquals(3, restored.getAggregateHits());
+    }
+
+    @Test
+    public void expiresAfterTheMaxAge()
+    {
+        CounterSnapshot snapshot = CounterSnapshot.capture(engine(), SAVED_AT);
+        assertFalse(snapshot.isExpired(SAVED_AT + CounterSnapshot.MAX_AGE_MILLIS));
+        assertTrue(snapshot.isExpired(SAVED_AT + CounterSnapshot.MAX_AGE_MILLIS + 1));
+    }
+
+    @Test
+    public void ignoresMissingAndUnrecognisedFiles() throws IOException
+    {
+        assertNull(CounterSnapshot.read(file));
+
+        Files.write(file.toPath(), new byte[44]);
+        assertNull(CounterSnapshot.read(file));
+
+        Files.write(file.toPath(), new byte[]{1, 2, 3});
+        assertNull(CounterSnapshot.read(file));
+    }
+
+    private HitCounterEngine restoredEngine()
+    {
+        HitCounterEngine saved = engine();
+        saved.tick(100);
+        saved.hitsplat(NPC_INDEX, NPC_ID, 12, 10);
+        saved.hitsplat(NPC_INDEX, NPC_ID, 12, 10);
+        saved.flush();
+        CounterSnapshot.capture(saved, SAVED_AT).write(file);
+
+        HitCounterEngine restored = engine();
+        restored.tick(200);
+        CounterSnapshot.read(file).restore(restored, SAVED_AT);
+        return restored;
+    }
+
+    private HitCounterEngine engine()
+    {
+        HitCounterEngine engine = new HitCounterEngine((effect, count) ->
+        {
+        });
+        engine.configure(settings);
+        return engine;
+    }
+}
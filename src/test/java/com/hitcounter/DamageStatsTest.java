@@ -0,0 +1,138 @@
+package com.hitcounter;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DamageStatsTest
+{
+    @Test
+    public void keepsTargetsApartAndSumsTheSession()
+    {
+        DamageStats stats = new DamageStats();
+        stats.record(1, 10);
+        stats.record(1, 0);
+        stats.record(2, 30);
+
+        int first = stats.slotOf(1);
+        assertEquals(2, stats.getHits(first));
+        assertEquals(10, stats.getTotal(first));
+        assertEquals(10, stats.getMax(first));
+        assertEquals(0.5, stats.getZeroRatio(first), 1e-9);
+        assertEquals(1, stats.getTarget(first));
+
+        assertEquals(3, stats.getHits(DamageStats.SESSION));
+        assertEquals(40, stats.getTotal(DamageStats.SESSION));
+        assertEquals(30, stats.getMax(DamageStats.SESSION));
+        assertEquals(DamageStats.NO_TARGET, stats.getTarget(DamageStats.SESSION));
+    }
+
+    @Test
+    public void meanAndVarianceMatchTheTwoPassFormulas()
+    {
+        Random random = new Random(3);
+        DamageStats stats = new DamageStats();
+        int[] amounts = new int[5000];
+        for (int i = 0; i < amounts.length; i++)
+        {
+            amounts[i] = random.nextInt(60);
+            stats.record(7, amounts[i]);
+        }
+
+        double mean = Arrays.stream(amounts).average().getAsDouble();
+        double squares = 0;
+        for (int amount : amounts)
+        {
+            squares += (amount - mean) * (amount - mean);
+        }
+
+        int slot = stats.slotOf(7);
+        assertEquals(mean, stats.getMean(slot), 1e-9);
+        assertEquals(squares / (amounts.length - 1), stats.getVariance(slot), 1e-6);
+    }
+
+    @Test
+    public void percentilesAreExactForSmallHits()
+    {
+        DamageStats stats = new DamageStats();
+        for (int amount = 1; amount <= 10; amount++)
+        {
+            stats.record(1, amount);
+        }
+
+        int slot = stats.slotOf(1);
+        assertEquals(5, stats.getPercentile(slot, 0.5));
+        assertEquals(9, stats.getPercentile(slot, 0.9));
+        assertEquals(10, stats.getPercentile(slot, 1.0));
+        assertEquals(1, stats.getPercentile(slot, 0.0));
+    }
+
+    @Test
+    public void percentilesOfLargeHitsAreCappedAtTheMax()
+    {
+        DamageStats stats = new DamageStats();
+        stats.record(1, 42);
+        stats.record(1, 1000);
+
+        int slot = stats.slotOf(1);
+        // 42 falls in the 40-44 bucket
+        assertEquals(44, stats.getPercentile(slot, 0.5));
+        assertEquals(1000, stats.getPercentile(slot, 1.0));
+    }
+
+    @Test
+    public void evictedSlotsAreReusedEmpty()
+    {
+        DamageStats stats = new DamageStats();
+        stats.record(1, 10);
+        int slot = stats.slotOf(1);
+        int version = stats.getVersion();
+
+        stats.evict(1);
+        assertEquals(DamageStats.NO_SLOT, stats.slotOf(1));
+        assertEquals(DamageStats.NO_TARGET, stats.getTarget(slot));
+        assertTrue(stats.getVersion() > version);
+
+        stats.record(2, 3);
+        assertEquals(slot, stats.slotOf(2));
+        assertEquals(1, stats.getHits(slot));
+        assertEquals(3, stats.getTotal(slot));
+        assertEquals(3, stats.getPercentile(slot, 1.0));
+        // The session keeps the evicted target's hits
+        assertEquals(2, stats.getHits(DamageStats.SESSION));
+    }
+
+    @Test
+    public void growsPastTheInitialSlots()
+    {
+        DamageStats stats = new DamageStats();
+        for (int npcIndex = 0; npcIndex < 100; npcIndex++)
+        {
+            stats.record(npcIndex, npcIndex);
+        }
+
+        for (int npcIndex = 0; npcIndex < 100; npcIndex++)
+        {
+            int slot = stats.slotOf(npcIndex);
+            assertEquals(npcIndex, stats.getTarget(slot));
+            assertEquals(npcIndex, stats.getTotal(slot));
+        }
+        assertEquals(101, stats.getSlotCount());
+    }
+
+    @Test
+    public void clearForgetsEverything()
+    {
+        DamageStats stats = new DamageStats();
+        stats.record(1, 10);
+        stats.clear();
+
+        assertEquals(DamageStats.NO_SLOT, stats.slotOf(1));
+        assertEquals(0, stats.getHits(DamageStats.SESSION));
+        assertEquals(1, stats.getSlotCount());
+    }
+}
@@ -0,0 +1,186 @@
+package com.hitcounter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HitCounterEngineTest
+{
+    private static final int NPC_ID = 2042;
+    private static final int SPLASH_TYPE = 12;
+
+    /**
+     * Effects fired by the engine, with the count each fired at.
+     */
+    private final List<HitCounterConfig.TriggerEffectMode> effects = new ArrayList<>();
+    private final List<Integer> counts = new ArrayList<>();
+
+    @Test
+    public void multiHitAttackCountsOnceAsAnAttack()
+    {
+        HitCounterEngine engine = engine(new TestConfig());
+        engine.tick(100);
+        // A multi-hit special attack lands several hitsplats on one target in the same tick
+        engine.hitsplat(1, NPC_ID, SPLASH_TYPE, 10);
+        engine.hitsplat(1, NPC_ID, SPLASH_TYPE, 12);
+        engine.hitsplat(1, NPC_ID, SPLASH_TYPE, 0);
+        assertTrue(engine.flush());
+
+        assertEquals(3, engine.getCount(HitCounterConfig.CountMode.HITSPLATS));
+        assertEquals(1, engine.getCount(HitCounterConfig.CountMode.ATTACKS));
+        assertEquals(3, engine.getTargetCount(1, false));
+        assertEquals(1, engine.getTargetCount(1, true));
+        assertEquals(100, engine.getLastAttackTick());
+        assertFalse(engine.flush());
+    }
+
+    @Test
+    public void barrageCountsOneAttackOnEachTarget()
+    {
+        HitCounterEngine engine = engine(new TestConfig()
+                .set("counterScope", HitCounterConfig.CounterScope.TARGET)
+                .set("countMode", HitCounterConfig.CountMode.ATTACKS));
+        engine.tick(100);
+        engine.hitsplat(1, NPC_ID, SPLASH_TYPE, 30);
+        engine.hitsplat(2, NPC_ID, SPLASH_TYPE, 28);
+        engine.hitsplat(3, NPC_ID, SPLASH_TYPE, 0);
+        engine.flush();
+
+        for (int npcIndex = 1; npcIndex <= 3; npcIndex++)
+        {
+            assertEquals(1, engine.getTargetCount(npcIndex, true));
+            assertEquals(1, engine.getTargetCount(npcIndex, false));
+        }
+        // The last hit in the batch decides the displayed target
+        assertEquals(3, engine.getTargetIndex());
+        assertEquals(1, engine.getCount());
+        assertEquals(3, engine.getAggregateHits());
+        assertEquals(1, engine.getAggregateAttacks());
+    }
+
+    @Test
+    public void resetsWhenABatchReachesTheResetCount()
+    {
+        HitCounterEngine engine = engine(new TestConfig()
+                .set("resetAfterXHits", true)
+                .set("resetHitCount", 5));
+        engine.tick(100);
+        engine.hitsplat(1, NPC_ID, SPLASH_TYPE, 1);
+        engine.hitsplat(1, NPC_ID, SPLASH_TYPE, 1);
+        engine.hitsplat(1, NPC_ID, SPLASH_TYPE, 1);
+        engine.flush();
+        assertEquals(3, engine.getCount());
+
+        engine.tick(101);
+        // Crosses the reset count part way through the batch
+        for (int i = 0; i < 4; i++)
+        {
+            engine.hitsplat(1, NPC_ID, SPLASH_TYPE, 1);
+        }
+        engine.flush();
+        assertEquals(0, engine.getCount());
+        assertEquals(0, engine.getCount(HitCounterConfig.CountMode.ATTACKS));
+
+        engine.tick(102);
+        engine.hitsplat(1, NPC_ID, SPLASH_TYPE, 1);
+        engine.flush();
+        assertEquals(1, engine.getCount());
+    }
+
+    @Test
+    public void resetsOnlyTheTargetThatReachedTheResetCount()
+    {
+        HitCounterEngine engine = engine(new TestConfig()
+                .set("counterScope", HitCounterConfig.CounterScope.TARGET)
+                .set("resetAfterXHits", true)
+                .set("resetHitCount", 3));
+        engine.tick(100);
+        engine.hitsplat(1, NPC_ID, SPLASH_TYPE, 1);
+        engine.hitsplat(1, NPC_ID, SPLASH_TYPE, 1);
+        engine.hitsplat(1, NPC_ID, SPLASH_TYPE, 1);
+        engine.hitsplat(2, NPC_ID, SPLASH_TYPE, 1);
+        engine.flush();
+
+        assertEquals(0, engine.getTargetCount(1, false));
+        assertEquals(1, engine.getTargetCount(2, false));
+    }
+
+    @Test
+    public void triggerFiresOnceWhenABatchSkipsPastItsCount()
+    {
+        HitCounterEngine engine = engine(new TestConfig().set("triggerRules", "5: sound"));
+        engine.tick(100);
+        for (int i = 0; i < 3; i++)
+        {
+            engine.hitsplat(1, NPC_ID, SPLASH_TYPE, 1);
+        }
+        engine.flush();
+        assertTrue(effects.isEmpty());
+
+        // Goes from 3 to 7 without ever displaying 5
+        engine.tick(101);
+        for (int i = 0; i < 4; i++)
+        {
+            engine.hitsplat(1, NPC_ID, SPLASH_TYPE, 1);
+        }
+        engine.flush();
+        assertEquals(1, effects.size());
+        assertEquals(HitCounterConfig.TriggerEffectMode.SOUND, effects.get(0));
+        assertEquals(7, counts.get(0).intValue());
+
+        engine.tick(102);
+        engine.hitsplat(1, NPC_ID, SPLASH_TYPE, 1);
+        engine.flush();
+        assertEquals(1, effects.size());
+    }
+
+    @Test
+    public void everyRuleFiresOncePerBatchPassingSeveralMultiples()
+    {
+        HitCounterEngine engine = engine(new TestConfig().set("triggerRules", "every 2: flash"));
+        engine.tick(100);
+        for (int i = 0; i < 5; i++)
+        {
+            engine.hitsplat(1, NPC_ID, SPLASH_TYPE, 1);
+        }
+        engine.flush();
+
+        assertEquals(1, effects.size());
+        assertEquals(HitCounterConfig.TriggerEffectMode.FLASH, effects.get(0));
+    }
+
+    @Test
+    public void triggerOnAttacksFiresOnTheAttackCount()
+    {
+        HitCounterEngine engine = engine(new TestConfig()
+                .set("countMode", HitCounterConfig.CountMode.ATTACKS)
+                .set("triggerRules", "2: sound"));
+        for (int tick = 100; tick < 103; tick++)
+        {
+            engine.tick(tick);
+            engine.hitsplat(1, NPC_ID, SPLASH_TYPE, 1);
+            engine.hitsplat(1, NPC_ID, SPLASH_TYPE, 1);
+            engine.flush();
+        }
+
+        assertEquals(1, effects.size());
+        assertEquals(2, counts.get(0).intValue());
+    }
+
+    private HitCounterEngine engine(TestConfig config)
+    {
+        HitCounterEngine engine = new HitCounterEngine((effect, count) ->
+        {
+            effects.add(effect);
+            counts.add(count);
+        });
+        engine.configure(config.settings());
+        engine.clear();
+        return engine;
+    }
+}
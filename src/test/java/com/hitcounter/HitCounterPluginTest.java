@@ -1,13 +1,13 @@
-package com.example;
+package com.hitcounter;
 
 import net.runelite.client.RuneLite;
 import net.runelite.client.externalplugins.ExternalPluginManager;
 
-public class ExamplePluginTest
+public class HitCounterPluginTest
 {
 	public static void main(String[] args) throws Exception
 	{
-		ExternalPluginManager.loadBuiltin(ExamplePlugin.class);
+		ExternalPluginManager.loadBuiltin(HitCounterPlugin.class);
 		RuneLite.main(args);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,181 @@
+package com.hitcounter;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class HitCubeTest
+{
+    private static final int ANY = HitCube.ANY;
+    private static final int ALL = HitCube.ALL_DIMENSIONS;
+
+    @Test
+    public void countsHitsAndDamagePerCombination()
+    {
+        HitCube cube = new HitCube(16);
+        cube.add(2042, 4151, 1, 12, 20);
+        cube.add(2042, 4151, 1, 12, 30);
+        cube.add(2042, 4151, 2, 12, 5);
+        cube.add(3029, HitCube.UNARMED, 0, 16, 0);
+
+        assertEquals(3, cube.size());
+        assertEquals(2, cube.getHits(2042, 4151, 1, 12));
+        assertEquals(50, cube.getDamage(2042, 4151, 1, 12));
+        assertEquals(0, cube.getHits(2042, 4151, 3, 12));
+    }
+
+    @Test
+    public void wildcardsSumOverADimension()
+    {
+        HitCube cube = new HitCube(16);
+        cube.add(2042, 4151, 1, 12, 20);
+        cube.add(2042, 4151, 2, 12, 5);
+        cube.add(2042, 861, 1, 16, 7);
+        cube.add(3029, 4151, 1, 12, 9);
+
+        assertEquals(2, cube.getHits(2042, 4151, ANY, ANY));
+        assertEquals(25, cube.getDamage(2042, 4151, ANY, ANY));
+        assertEquals(3, cube.getHits(ANY, 4151, ANY, 12));
+        assertEquals(4, cube.getHits(ANY, ANY, ANY, ANY));
+        assertEquals(41, cube.getDamage(ANY, ANY, ANY, ANY));
+    }
+
+    @Test
+    public void rollUpKeepsOnlyTheGivenDimensions()
+    {
+        HitCube cube = new HitCube(16);
+        cube.add(2042, 4151, 1, 12, 20);
+        cube.add(2042, 4151, 2, 16, 5);
+        cube.add(2042, 861, 1, 12, 7);
+        cube.add(3029, 4151, 1, 12, 9);
+
+        HitCube perWeapon = cube.rollUp(HitCube.NPC | HitCube.WEAPON);
+        assertEquals(3, perWeapon.size());
+        assertEquals(2, perWeapon.getHits(2042, 4151, ANY, ANY));
+        assertEquals(25, perWeapon.getDamage(2042, 4151, ANY, ANY));
+
+        for (int slot = 0; slot < perWeapon.getSlotCount(); slot++)
+        {
+            if (perWeapon.isUsed(slot))
+            {
+                assertEquals(ANY, perWeapon.getAttackStyle(slot));
+                assertEquals(ANY, perWeapon.getHitsplatType(slot));
+            }
+        }
+
+        HitCube total = cube.rollUp(0);
+        assertEquals(1, total.size());
+        assertEquals(4, total.getHits(ANY, ANY, ANY, ANY));
+
+        assertEquals(4, cube.rollUp(HitCube.ALL_DIMENSIONS).size());
+    }
+
+    @Test
+    public void rollUpMatchesABruteForceSum()
+    {
+        Random random = new Random(9);
+        HitCube cube = new HitCube(4096);
+        int[][] hits = new int[20_000][];
+        for (int i = 0; i < hits.length; i++)
+        {
+            hits[i] = new int[]{random.nextInt(20), random.nextInt(6), random.nextInt(4), random.nextInt(3),
+                    random.nextInt(40)};
+            cube.add(hits[i][0], hits[i][1], hits[i][2], hits[i][3], hits[i][4]);
+        }
+
+        for (int dimensions = 0; dimensions <= HitCube.ALL_DIMENSIONS; dimensions++)
+        {
+            Map<String, long[]> expected = new HashMap<>();
+            for (int[] hit : hits)
+            {
+                long[] totals = expected.computeIfAbsent(keyOf(hit, dimensions), k -> new long[2]);
+                totals[0]++;
+                totals[1] += hit[4];
+            }
+
+            HitCube rolled = cube.rollUp(dimensions);
+            assertEquals(expected.size(), rolled.size());
+            for (int slot = 0; slot < rolled.getSlotCount(); slot++)
+            {
+                if (rolled.isUsed(slot))
+                {
+                    int[] entry = {rolled.getNpcId(slot), rolled.getWeaponId(slot), rolled.getAttackStyle(slot),
+                            rolled.getHitsplatType(slot)};
+                    long[] totals = expected.get(keyOf(entry, ALL));
+                    assertEquals(totals[0], rolled.getHits(slot));
+                    assertEquals(totals[1], rolled.getDamage(slot));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUpdatedEntry()
+    {
+        HitCube cube = new HitCube(3);
+        cube.add(1, 0, 0, 0, 10);
+        cube.add(2, 0, 0, 0, 10);
+        cube.add(3, 0, 0, 0, 10);
+        // Touching the first entry makes the second the least recent
+        cube.add(1, 0, 0, 0, 10);
+
+        cube.add(4, 0, 0, 0, 10);
+        assertEquals(3, cube.size());
+        assertEquals(1, cube.getEvicted());
+        assertEquals(0, cube.getHits(2, 0, 0, 0));
+        assertEquals(2, cube.getHits(1, 0, 0, 0));
+        assertEquals(1, cube.getHits(3, 0, 0, 0));
+        assertEquals(1, cube.getHits(4, 0, 0, 0));
+    }
+
+    @Test
+    public void keepsTheMostRecentEntriesUnderChurn()
+    {
+        int maxEntries = 64;
+        HitCube cube = new HitCube(maxEntries);
+        for (int npcId = 0; npcId < 10_000; npcId++)
+        {
+            cube.add(npcId, 0, 0, 0, 1);
+        }
+
+        assertEquals(maxEntries, cube.size());
+        assertEquals(10_000 - maxEntries, cube.getEvicted());
+        for (int npcId = 10_000 - maxEntries; npcId < 10_000; npcId++)
+        {
+            assertEquals(1, cube.getHits(npcId, 0, 0, 0));
+        }
+        assertEquals(maxEntries, cube.getHits(ANY, ANY, ANY, ANY));
+    }
+
+    @Test
+    public void clampsValuesTooLargeForTheirField()
+    {
+        HitCube cube = new HitCube(16);
+        cube.add(2042, 4151, 1000, 1000, 3);
+        assertEquals(1, cube.getHits(2042, 4151, 254, 254));
+        assertEquals(1, cube.getHits(2042, 4151, 1000, 1000));
+    }
+
+    @Test
+    public void clearEmptiesTheCube()
+    {
+        HitCube cube = new HitCube(16);
+        cube.add(2042, 4151, 1, 12, 20);
+        cube.clear();
+
+        assertEquals(0, cube.size());
+        assertEquals(0, cube.getHits(ANY, ANY, ANY, ANY));
+    }
+
+    private static String keyOf(int[] hit, int dimensions)
+    {
+        return ((dimensions & HitCube.NPC) != 0 ? hit[0] : ANY)
+                + "/" + ((dimensions & HitCube.WEAPON) != 0 ? hit[1] : ANY)
+                + "/" + ((dimensions & HitCube.ATTACK_STYLE) != 0 ? hit[2] : ANY)
+                + "/" + ((dimensions & HitCube.HITSPLAT_TYPE) != 0 ? hit[3] : ANY);
+    }
+}
@@ -0,0 +1,82 @@
+package com.hitcounter;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class HitEventLogTest
+{
+    private static final int NPC_ID = 2042;
+
+    @Test
+    public void replaysTicksInThePluginsOrder()
+    {
+        HitEventLog log = new HitEventLog(16);
+        log.tick(100);
+        log.hitsplat(1, NPC_ID, 12, 10);
+        log.hitsplat(1, NPC_ID, 12, 5);
+        log.tick(101);
+
+        HitCounterEngine replayed = engine();
+        log.replay(replayed);
+
+        // Live, the game tick advances the clock and then flushes the hits that landed before it
+        HitCounterEngine live = engine();
+        live.tick(100);
+        live.flush();
+        live.hitsplat(1, NPC_ID, 12, 10);
+        live.hitsplat(1, NPC_ID, 12, 5);
+        live.tick(101);
+        live.flush();
+
+        assertEquals(101, replayed.getLastAttackTick());
+        assertEquals(live.getLastAttackTick(), replayed.getLastAttackTick());
+        assertEquals(live.getAggregateHits(), replayed.getAggregateHits());
+        assertEquals(live.getAggregateAttacks(), replayed.getAggregateAttacks());
+    }
+
+    @Test
+    public void roundTripsThroughAStream() throws IOException
+    {
+        HitEventLog log = new HitEventLog(16);
+        log.tick(100);
+        log.hitsplat(1, NPC_ID, 12, 10);
+        log.hitsplat(2, NPC_ID, 12, 7);
+        log.tick(101);
+        log.kill(1);
+        log.despawn(1);
+        log.hitsplat(2, NPC_ID, 12, 3);
+        log.tick(102);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        log.write(new DataOutputStream(bytes));
+        HitEventLog read = HitEventLog.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(log.size(), read.size());
+
+        HitCounterEngine original = engine();
+        log.replay(original);
+        HitCounterEngine copy = engine();
+        read.replay(copy);
+
+        assertEquals(original.getAggregateHits(), copy.getAggregateHits());
+        assertEquals(original.getAggregateAttacks(), copy.getAggregateAttacks());
+        assertEquals(original.getLastAttackTick(), copy.getLastAttackTick());
+        assertEquals(original.getKills().size(), copy.getKills().size());
+    }
+
+    private static HitCounterEngine engine()
+    {
+        HitCounterEngine engine = new HitCounterEngine((effect, count) ->
+        {
+        });
+        engine.configure(new TestConfig().settings());
+        engine.clear();
+        return engine;
+    }
+}
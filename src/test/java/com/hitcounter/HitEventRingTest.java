@@ -0,0 +1,98 @@
+package com.hitcounter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HitEventRingTest
+{
+    @Test
+    public void roundsTheCapacityUpToAPowerOfTwo()
+    {
+        assertEquals(2, new HitEventRing(0).getCapacity());
+        assertEquals(2, new HitEventRing(2).getCapacity());
+        assertEquals(4, new HitEventRing(3).getCapacity());
+        assertEquals(1024, new HitEventRing(1024).getCapacity());
+        assertEquals(2048, new HitEventRing(1025).getCapacity());
+    }
+
+    @Test
+    public void drainsEveryFieldInOrder()
+    {
+        HitEventRing ring = new HitEventRing(4);
+        assertTrue(ring.offer(100, 1, 2042, 12, 30, 7));
+        assertTrue(ring.offer(101, 2, 3029, 16, 0, 8));
+
+        List<int[]> drained = new ArrayList<>();
+        assertEquals(2, ring.drain(collect(drained)));
+        assertEquals(0, ring.size());
+        assertEquals(2, drained.size());
+        assertArrayEquals(new int[]{100, 1, 2042, 12, 30, 7}, drained.get(0));
+        assertArrayEquals(new int[]{101, 2, 3029, 16, 0, 8}, drained.get(1));
+
+        assertEquals(0, ring.drain(collect(drained)));
+    }
+
+    @Test
+    public void dropsNewHitsWhenFull()
+    {
+        HitEventRing ring = new HitEventRing(4);
+        for (int i = 0; i < 4; i++)
+        {
+            assertTrue(ring.offer(i, 0, 0, 0, 0, i));
+        }
+        assertFalse(ring.offer(4, 0, 0, 0, 0, 4));
+        assertFalse(ring.offer(5, 0, 0, 0, 0, 5));
+        assertEquals(2, ring.getDropped());
+        assertEquals(4, ring.size());
+
+        // The records already published survive the overflow
+        List<int[]> drained = new ArrayList<>();
+        ring.drain(collect(drained));
+        for (int i = 0; i < 4; i++)
+        {
+            assertEquals(i, drained.get(i)[5]);
+        }
+    }
+
+    @Test
+    public void reusesSlotsAcrossManyWraps()
+    {
+        HitEventRing ring = new HitEventRing(8);
+        List<int[]> drained = new ArrayList<>();
+        int next = 0;
+        for (int round = 0; round < 1000; round++)
+        {
+            int batch = round % 10;
+            for (int i = 0; i < batch; i++)
+            {
+                assertEquals(i < 8, ring.offer(next, 0, 0, 0, 0, next));
+                if (i < 8)
+                {
+                    next++;
+                }
+            }
+            ring.drain(collect(drained));
+        }
+
+        assertEquals(next, drained.size());
+        for (int i = 0; i < next; i++)
+        {
+            assertEquals(i, drained.get(i)[0]);
+        }
+        // Batches of nine drop one hit each
+        assertEquals(100, ring.getDropped());
+    }
+
+    private static HitEventRing.Consumer collect(List<int[]> drained)
+    {
+        return (tick, npcIndex, npcId, hitsplatType, amount, counter) ->
+                drained.add(new int[]{tick, npcIndex, npcId, hitsplatType, amount, counter});
+    }
+}
@@ -0,0 +1,90 @@
+package com.hitcounter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HitFilterTest
+{
+    @Test
+    public void emptyListsAcceptEverything()
+    {
+        HitFilter filter = HitFilter.compile("", null);
+        assertTrue(filter.acceptsNpc(2042, "Zulrah"));
+        assertTrue(filter.acceptsNpc(-1, null));
+        assertTrue(filter.acceptsType(12));
+        assertTrue(filter.acceptsType(-1));
+    }
+
+    @Test
+    public void includesByIdOrName()
+    {
+        HitFilter filter = HitFilter.compile("2042, *imp*", "");
+        assertTrue(filter.acceptsNpc(2042, "Zulrah"));
+        assertTrue(filter.acceptsNpc(3134, "Imp"));
+        assertTrue(filter.acceptsNpc(5007, "Imp champion"));
+        assertFalse(filter.acceptsNpc(3029, "Goblin"));
+    }
+
+    @Test
+    public void namesAreCaseInsensitiveGlobs()
+    {
+        HitFilter filter = HitFilter.compile("gob?in, Dark *", "");
+        assertTrue(filter.acceptsNpc(1, "GOBLIN"));
+        assertTrue(filter.acceptsNpc(2, "dark wizard"));
+        assertFalse(filter.acceptsNpc(3, "goblins"));
+        // Regex characters in a name are taken literally
+        assertFalse(HitFilter.compile("a.c", "").acceptsNpc(4, "abc"));
+    }
+
+    @Test
+    public void excludeWinsOverInclude()
+    {
+        HitFilter filter = HitFilter.compile("*imp*", "3134, type:0");
+        assertFalse(filter.acceptsNpc(3134, "Imp"));
+        assertTrue(filter.acceptsNpc(5007, "Imp champion"));
+        assertFalse(filter.acceptsType(0));
+        assertTrue(filter.acceptsType(1));
+    }
+
+    @Test
+    public void includedTypesNarrowTheCountedHits()
+    {
+        HitFilter filter = HitFilter.compile("type:12, type: 16", "");
+        assertTrue(filter.acceptsType(12));
+        assertTrue(filter.acceptsType(16));
+        assertFalse(filter.acceptsType(0));
+        assertFalse(filter.acceptsType(-1));
+        // Type entries leave the NPC rules empty
+        assertTrue(filter.acceptsNpc(3029, "Goblin"));
+    }
+
+    @Test
+    public void ignoresTypesBeyondAByte()
+    {
+        HitFilter filter = HitFilter.compile("type:256, type:999999999", "type:1000");
+        assertTrue(filter.acceptsType(12));
+        assertTrue(filter.acceptsType(256));
+        assertTrue(filter.acceptsType(1000));
+    }
+
+    @Test
+    public void cachesVerdictsByIdWithoutRereadingTheName()
+    {
+        HitFilter filter = HitFilter.compile("*imp*", "");
+        assertFalse(filter.isCached(3134));
+        assertTrue(filter.acceptsNpc(3134, "Imp"));
+        assertTrue(filter.isCached(3134));
+        assertTrue(filter.acceptsNpc(3134, null));
+    }
+
+    @Test
+    public void cachesIdsPastTheInitialRange()
+    {
+        HitFilter filter = HitFilter.compile("100000", "");
+        assertTrue(filter.acceptsNpc(100000, null));
+        assertTrue(filter.isCached(100000));
+        assertFalse(filter.acceptsNpc(100001, null));
+    }
+}
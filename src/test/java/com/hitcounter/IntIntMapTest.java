@@ -0,0 +1,128 @@
+package com.hitcounter;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IntIntMapTest
+{
+    @Test
+    public void missingKeysReadAsZero()
+    {
+        IntIntMap map = new IntIntMap(4);
+        assertEquals(0, map.get(7));
+        assertFalse(map.containsKey(7));
+        assertEquals(0, map.remove(7));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void addInsertsThenAccumulates()
+    {
+        IntIntMap map = new IntIntMap(4);
+        assertEquals(3, map.add(5, 3));
+        assertEquals(4, map.increment(5));
+        assertEquals(4, map.get(5));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void growsPastTheExpectedSize()
+    {
+        IntIntMap map = new IntIntMap(2);
+        for (int key = 0; key < 1000; key++)
+        {
+            map.put(key, key * 2);
+        }
+
+        assertEquals(1000, map.size());
+        for (int key = 0; key < 1000; key++)
+        {
+            assertEquals(key * 2, map.get(key));
+        }
+    }
+
+    @Test
+    public void removeKeepsTheOtherKeysReachable()
+    {
+        // Removing each key in turn from a table just below its resize point shifts its probe chain back
+        for (int removed = 0; removed < 31; removed++)
+        {
+            IntIntMap map = new IntIntMap(32);
+            for (int key = 0; key < 31; key++)
+            {
+                map.put(key, key + 100);
+            }
+
+            assertEquals(removed + 100, map.remove(removed));
+            assertFalse(map.containsKey(removed));
+            assertEquals(30, map.size());
+            for (int key = 0; key < 31; key++)
+            {
+                if (key != removed)
+                {
+                    assertEquals(key + 100, map.get(key));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void matchesHashMapUnderRandomChurn()
+    {
+        Random random = new Random(1);
+        IntIntMap map = new IntIntMap(16);
+        Map<Integer, Integer> reference = new HashMap<>();
+
+        for (int i = 0; i < 200_000; i++)
+        {
+            int key = random.nextInt(512) - 256;
+            switch (random.nextInt(3))
+            {
+                case 0:
+                    map.put(key, i);
+                    reference.put(key, i);
+                    break;
+                case 1:
+                    map.add(key, 1);
+                    reference.merge(key, 1, Integer::sum);
+                    break;
+                default:
+                    int expected = reference.containsKey(key) ? reference.remove(key) : 0;
+                    assertEquals(expected, map.remove(key));
+                    break;
+            }
+        }
+
+        assertEquals(reference.size(), map.size());
+        for (int key = -256; key < 256; key++)
+        {
+            assertEquals(reference.containsKey(key), map.containsKey(key));
+            assertEquals(reference.getOrDefault(key, 0).intValue(), map.get(key));
+        }
+    }
+
+    @Test
+    public void clearEmptiesTheMap()
+    {
+        IntIntMap map = new IntIntMap(4);
+        map.put(1, 1);
+        map.put(2, 2);
+        map.clear();
+
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTheReservedKey()
+    {
+        new IntIntMap(4).put(IntIntMap.FREE_KEY, 1);
+    }
+}
@@ -0,0 +1,216 @@
+package com.hitcounter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class KillHistoryTest
+{
+    @Test
+    public void closesOnlyTheDyingNpcsHits()
+    {
+        KillHistory kills = new KillHistory();
+        kills.hit(1, 100, 12, 10);
+        kills.hit(2, 100, 12, 99);
+        kills.hit(1, 103, 16, 0);
+        kills.record(1, 2042, "Zulrah", 100, 103, 2, 10, 10);
+
+        assertEquals(1, kills.size());
+        assertEquals(2042, kills.getNpcId(0));
+        assertEquals("Zulrah", kills.getName(0));
+        assertEquals(2, kills.getSequenceLength(0));
+        assertEquals(0, kills.getHitTickOffset(0, 0));
+        assertEquals(10, kills.getHitAmount(0, 0));
+        assertEquals(12, kills.getHitsplatType(0, 0));
+        assertEquals(3, kills.getHitTickOffset(0, 1));
+        assertEquals(0, kills.getHitAmount(0, 1));
+        assertEquals(16, kills.getHitsplatType(0, 1));
+
+        assertFalse(kills.isOpen(1));
+        assertTrue(kills.isOpen(2));
+    }
+
+    @Test
+    public void discardDropsOpenHitsWithoutAKill()
+    {
+        KillHistory kills = new KillHistory();
+        kills.hit(1, 100, 12, 10);
+        kills.hit(2, 100, 12, 20);
+        kills.discard(1);
+
+        assertFalse(kills.isOpen(1));
+        assertTrue(kills.isOpen(2));
+        assertEquals(0, kills.size());
+
+        kills.record(2, 3029, null, 100, 100, 1, 20, 20);
+        assertEquals(1, kills.getSequenceLength(0));
+        assertEquals(20, kills.getHitAmount(0, 0));
+    }
+
+    @Test
+    public void clampsHitsToTheirColumns()
+    {
+        KillHistory kills = new KillHistory();
+        kills.hit(1, 10, 300, 100_000);
+        kills.hit(1, 100_000, 255, -5);
+        kills.record(1, 1, null, 20, 100_000, 2, 100_000, 100_000);
+
+        // A hit before the first tick reads as offset 0
+        assertEquals(0, kills.getHitTickOffset(0, 0));
+        assertEquals(Short.MAX_VALUE, kills.getHitAmount(0, 0));
+        assertEquals(300 & 0xFF, kills.getHitsplatType(0, 0));
+        assertEquals(Character.MAX_VALUE, kills.getHitTickOffset(0, 1));
+        assertEquals(-5, kills.getHitAmount(0, 1));
+        assertEquals(255, kills.getHitsplatType(0, 1));
+    }
+
+    @Test
+    public void overwritesTheOldestKillOnceTheRingIsFull()
+    {
+        KillHistory kills = new KillHistory();
+        int total = KillHistory.CAPACITY + 100;
+        for (int i = 0; i < total; i++)
+        {
+            kills.hit(1, i, 0, i % 1000);
+            kills.record(1, i, "npc " + i, i, i, 1, i % 1000, i % 1000);
+        }
+
+        assertEquals(KillHistory.CAPACITY, kills.size());
+        assertEquals(total, kills.getRecorded());
+        for (int i = 0; i < kills.size(); i++)
+        {
+            int kill = 100 + i;
+            assertEquals(kill, kills.getNpcId(i));
+            assertEquals("npc " + kill, kills.getName(i));
+            assertEquals(kill % 1000, kills.getHitAmount(i, 0));
+        }
+    }
+
+    @Test
+    public void growsTheArenaAndKeepsSequencesAcrossTheWrap()
+    {
+        Random random = new Random(11);
+        KillHistory kills = new KillHistory();
+        List<int[]> expected = new ArrayList<>();
+
+        // Enough hits to grow the arena to its limit and wrap it several times
+        long hits = 0;
+        int npcId = 0;
+        while (hits < 3L * KillHistory.MAX_HITS)
+        {
+            int length = random.nextInt(random.nextInt(10) == 0 ? 20_000 : 200);
+            int[] amounts = new int[length];
+            for (int j = 0; j < length; j++)
+            {
+                amounts[j] = random.nextInt(1000);
+                kills.hit(7, 50 + j, j & 0xFF, amounts[j]);
+            }
+            kills.record(7, npcId++, null, 50, 50 + length, length, 0, 0);
+            expected.add(amounts);
+            hits += length;
+
+            if (npcId % 50 == 0)
+            {
+                assertHeld(kills, expected);
+            }
+        }
+        assertHeld(kills, expected);
+
+        long held = 0;
+        for (int i = 0; i < kills.size(); i++)
+        {
+            held += kills.getSequenceLength(i);
+        }
+        assertTrue(held <= KillHistory.MAX_HITS);
+        assertTrue(kills.size() < expected.size());
+    }
+
+    @Test
+    public void cutsSequencesLongerThanTheArena()
+    {
+        KillHistory kills = new KillHistory();
+        int length = KillHistory.MAX_HITS + 10;
+        for (int j = 0; j < length; j++)
+        {
+            kills.hit(1, 0, 0, j & 0x7FFF);
+        }
+        kills.record(1, 1, null, 0, 0, length, 0, 0);
+
+        assertEquals(length, kills.getHits(0));
+        assertEquals(KillHistory.MAX_HITS, kills.getSequenceLength(0));
+        assertEquals(0, kills.getHitAmount(0, 0));
+        assertEquals((KillHistory.MAX_HITS - 1) & 0x7FFF, kills.getHitAmount(0, KillHistory.MAX_HITS - 1));
+        assertFalse(kills.isOpen(1));
+    }
+
+    @Test
+    public void queriesRecentKillsNewestFirst()
+    {
+        KillHistory kills = new KillHistory();
+        int[] hitCounts = {4, 9, 2, 7, 5};
+        for (int i = 0; i < hitCounts.length; i++)
+        {
+            kills.record(i, i % 2 == 0 ? 2042 : 3029, null, 0, 0, hitCounts[i], 0, 0);
+        }
+
+        int[] recent = new int[10];
+        assertEquals(3, kills.getRecentHits(2042, 10, recent));
+        assertEquals(5, recent[0]);
+        assertEquals(2, recent[1]);
+        assertEquals(4, recent[2]);
+        assertEquals(2, kills.getRecentHits(KillHistory.ANY_NPC, 2, recent));
+        assertEquals(5, recent[0]);
+        assertEquals(7, recent[1]);
+
+        assertEquals(3, kills.getKills(2042));
+        assertEquals(4, kills.getMedianHits(2042, 10), 0);
+        assertEquals(6, kills.getMedianHits(KillHistory.ANY_NPC, 2), 0);
+        assertEquals(5, kills.getMedianHits(KillHistory.ANY_NPC, 100), 0);
+        assertTrue(Double.isNaN(kills.getMedianHits(1, 10)));
+    }
+
+    @Test
+    public void clearForgetsKillsAndOpenHits()
+    {
+        KillHistory kills = new KillHistory();
+        kills.hit(1, 0, 0, 5);
+        kills.record(1, 1, "Imp", 0, 0, 1, 5, 5);
+        kills.hit(2, 0, 0, 5);
+        kills.clear();
+
+        assertEquals(0, kills.size());
+        assertEquals(0, kills.getRecorded());
+        assertFalse(kills.isOpen(2));
+
+        kills.record(3, 1, null, 0, 0, 0, 0, 0);
+        assertNull(kills.getName(0));
+        assertEquals(0, kills.getSequenceLength(0));
+    }
+
+    /**
+     * Checks the held kills are the newest recorded ones, each with its full sequence.
+     */
+    private static void assertHeld(KillHistory kills, List<int[]> expected)
+    {
+        int first = expected.size() - kills.size();
+        for (int i = 0; i < kills.size(); i++)
+        {
+            int[] amounts = expected.get(first + i);
+            assertEquals(first + i, kills.getNpcId(i));
+            assertEquals(amounts.length, kills.getSequenceLength(i));
+            for (int j = 0; j < amounts.length; j++)
+            {
+                assertEquals(amounts[j], kills.getHitAmount(i, j));
+                assertEquals(j, kills.getHitTickOffset(i, j));
+                assertEquals(j & 0xFF, kills.getHitsplatType(i, j));
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.hitcounter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-process {@link PartyTransport}: every transport joined to the same {@link Hub} is a party member,
+ * and updates are delivered synchronously to the other members' listeners.
+ */
+final class LoopbackPartyTransport implements PartyTransport
+{
+    static final class Hub
+    {
+        private final List<LoopbackPartyTransport> members = new ArrayList<>();
+
+        private void deliver(LoopbackPartyTransport sender, HitCountUpdate update)
+        {
+            update.setMemberId(sender.memberId);
+            for (LoopbackPartyTransport member : members)
+            {
+                if (member != sender && member.listener != null)
+                {
+                    member.listener.onUpdate(sender.memberId, sender.name, update);
+                }
+            }
+        }
+
+        private void leave(LoopbackPartyTransport leaving)
+        {
+            members.remove(leaving);
+            for (LoopbackPartyTransport member : members)
+            {
+                if (member.listener != null)
+                {
+                    member.listener.onMemberLeft(leaving.memberId);
+                }
+            }
+        }
+    }
+
+    private final Hub hub;
+    private final long memberId;
+    private final String name;
+
+    private Listener listener;
+
+    /**
+     * Updates this member has sent.
+     */
+    int sent;
+
+    LoopbackPartyTransport(Hub hub, long memberId, String name)
+    {
+        this.hub = hub;
+        this.memberId = memberId;
+        this.name = name;
+    }
+
+    @Override
+    public void start(Listener listener)
+    {
+        this.listener = listener;
+        hub.members.add(this);
+    }
+
+    @Override
+    public void stop()
+    {
+        listener = null;
+        hub.leave(this);
+    }
+
+    @Override
+    public boolean isConnected()
+    {
+        return hub.members.contains(this);
+    }
+
+    @Override
+    public void send(HitCountUpdate update)
+    {
+        sent++;
+        hub.deliver(this, update);
+    }
+}
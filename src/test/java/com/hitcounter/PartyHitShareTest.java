@@ -0,0 +1,87 @@
+package com.hitcounter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PartyHitShareTest
+{
+    private static final int NPC = 42;
+
+    private LoopbackPartyTransport localTransport;
+    private PartyHitShare local;
+    private PartyHitShare remote;
+
+    @Before
+    public void setUp()
+    {
+        LoopbackPartyTransport.Hub hub = new LoopbackPartyTransport.Hub();
+        localTransport = new LoopbackPartyTransport(hub, 1, "Local");
+        local = new PartyHitShare(localTransport);
+        remote = new PartyHitShare(new LoopbackPartyTransport(hub, 2, "Remote"));
+        local.start();
+        remote.start();
+    }
+
+    @Test
+    public void sendsOnlyWhenTheCountChanges()
+    {
+        local.tick(100, NPC, 1);
+        local.tick(102, NPC, 1);
+        local.tick(104, NPC, 1);
+
+        assertEquals(1, localTransport.sent);
+        assertCount(remote, 1);
+    }
+
+    @Test
+    public void holdsBackChangesWithinTheSendInterval()
+    {
+        local.tick(100, NPC, 1);
+        local.tick(101, NPC, 2);
+        local.tick(101, NPC, 3);
+
+        assertEquals(1, localTransport.sent);
+        assertCount(remote, 1);
+
+        // The changes held back go out together once the interval has passed
+        local.tick(100 + PartyHitShare.MIN_SEND_INTERVAL_TICKS, NPC, 3);
+        assertEquals(2, localTransport.sent);
+        assertCount(remote, 3);
+    }
+
+    @Test
+    public void showsMembersOnTheSameTargetOnly()
+    {
+        local.tick(100, NPC, 5);
+
+        assertEquals(1, remote.getMembersOn(NPC).size());
+        assertTrue(remote.getMembersOn(NPC + 1).isEmpty());
+        // Nothing is delivered back to the sender
+        assertTrue(local.getMembersOn(NPC).isEmpty());
+    }
+
+    @Test
+    public void forgetsMembersThatLeave()
+    {
+        local.tick(100, NPC, 5);
+        int version = remote.getVersion();
+
+        local.stop();
+
+        assertTrue(remote.getMembersOn(NPC).isEmpty());
+        assertTrue(remote.getVersion() > version);
+    }
+
+    private static void assertCount(PartyHitShare share, int count)
+    {
+        List<PartyHitShare.Member> members = share.getMembersOn(NPC);
+        assertEquals(1, members.size());
+        assertEquals("Local", members.get(0).getName());
+        assertEquals(count, members.get(0).getCount());
+    }
+}
@@ -0,0 +1,208 @@
+package com.hitcounter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PersonalRecordsTest
+{
+    private static final int NPC = 2042;
+    private static final Executor DIRECT = Runnable::run;
+
+    private File directory;
+
+    /**
+     * Stand-ins for the executor and the client thread that only run their tasks when asked.
+     */
+    private final QueuedExecutor executor = new QueuedExecutor();
+    private final QueuedExecutor clientThread = new QueuedExecutor();
+
+    @Before
+    public void setUp() throws IOException
+    {
+        directory = Files.createTempDirectory("hitcounter-records").toFile();
+    }
+
+    @After
+    public void tearDown()
+    {
+        File[] files = directory.listFiles();
+        if (files != null)
+        {
+            for (File file : files)
+            {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void peekDoesNotRead()
+    {
+        PersonalRecords records = new PersonalRecords(directory, executor, clientThread);
+        assertNull(records.peek(NPC));
+        assertEquals(0, executor.tasks.size());
+
+        PersonalRecords.Record record = records.get(NPC);
+        assertEquals(1, executor.tasks.size());
+        assertSame(record, records.peek(NPC));
+        assertSame(record, records.get(NPC));
+        assertEquals(1, executor.tasks.size());
+    }
+
+    @Test
+    public void mergesKillsRecordedBeforeTheReadLands()
+    {
+        saveKills(NPC, 10, 20);
+
+        PersonalRecords records = new PersonalRecords(directory, executor, clientThread);
+        records.recordKill(NPC, 6, 3, 100);
+        PersonalRecords.Record record = records.peek(NPC);
+        assertEquals(1, record.getKills());
+
+        executor.runAll();
+        clientThread.runAll();
+
+        assertEquals(3, record.getKills());
+        assertEquals(6, record.getBest(HitCounterConfig.CountMode.HITSPLATS));
+        assertEquals(3, record.getBest(HitCounterConfig.CountMode.ATTACKS));
+        assertEquals((10 + 20 + 6) / 3.0, record.getAverage(HitCounterConfig.CountMode.HITSPLATS), 1e-9);
+
+        records.flush();
+        executor.runAll();
+        assertEquals(3, reread(NPC).getKills());
+    }
+
+    @Test
+    public void flushBeforeTheReadLandsAddsToTheFile()
+    {
+        saveKills(NPC, 10, 20);
+
+        PersonalRecords records = new PersonalRecords(directory, executor, clientThread);
+        records.recordKill(NPC, 6, 3, 100);
+        records.flush();
+        records.recordKill(NPC, 8, 4, 101);
+        records.flush();
+
+        // The read was queued first, so it sees the file as it was before either merge
+        executor.runAll();
+        clientThread.runAll();
+
+        PersonalRecords.Record record = records.peek(NPC);
+        assertEquals(4, record.getKills());
+        assertEquals(6, record.getBest(HitCounterConfig.CountMode.HITSPLATS));
+
+        PersonalRecords.Record saved = reread(NPC);
+        assertEquals(4, saved.getKills());
+        assertEquals(6, saved.getBest(HitCounterConfig.CountMode.HITSPLATS));
+        assertEquals((10 + 20 + 6 + 8) / 4.0, saved.getAverage(HitCounterConfig.CountMode.HITSPLATS), 1e-9);
+    }
+
+    @Test
+    public void clearKeepsKillsStillBeingRead()
+    {
+        saveKills(NPC, 10);
+
+        PersonalRecords records = new PersonalRecords(directory, executor, clientThread);
+        records.recordKill(NPC, 6, 3, 100);
+        records.clear();
+        executor.runAll();
+        clientThread.runAll();
+
+        assertNull(records.peek(NPC));
+        assertEquals(2, reread(NPC).getKills());
+    }
+
+    @Test
+    public void evictionWritesBackChangedRecords()
+    {
+        PersonalRecords records = new PersonalRecords(directory, DIRECT, DIRECT);
+        for (int npcId = 0; npcId <= PersonalRecords.CAPACITY; npcId++)
+        {
+            records.recordKill(npcId, 5, 5, 100);
+        }
+
+        // Only the least recently used record was dropped, and it was written on the way out
+        assertNull(records.peek(0));
+        assertTrue(new File(directory, "0.rec").isFile());
+        assertFalse(new File(directory, "1.rec").isFile());
+        assertEquals(1, reread(0).getKills());
+    }
+
+    @Test
+    public void evictionKeepsRecordsStillBeingRead()
+    {
+        PersonalRecords records = new PersonalRecords(directory, executor, clientThread);
+        for (int npcId = 0; npcId <= PersonalRecords.CAPACITY; npcId++)
+        {
+            records.recordKill(npcId, 5, 5, 100);
+        }
+
+        assertEquals(1, records.peek(0).getKills());
+        assertFalse(new File(directory, "0.rec").isFile());
+    }
+
+    @Test
+    public void writesBackAfterTheFlushDelay()
+    {
+        PersonalRecords records = new PersonalRecords(directory, DIRECT, DIRECT);
+        records.recordKill(NPC, 5, 5, 100);
+
+        records.tick(100 + PersonalRecords.FLUSH_DELAY_TICKS - 1);
+        assertFalse(new File(directory, NPC + ".rec").isFile());
+
+        records.tick(100 + PersonalRecords.FLUSH_DELAY_TICKS);
+        assertEquals(1, reread(NPC).getKills());
+    }
+
+    /**
+     * Writes kills with the given hit counts straight to the NPC's file.
+     */
+    private void saveKills(int npcId, int... hits)
+    {
+        PersonalRecords records = new PersonalRecords(directory, DIRECT, DIRECT);
+        for (int count : hits)
+        {
+            records.recordKill(npcId, count, count, 0);
+        }
+        records.flush();
+    }
+
+    private PersonalRecords.Record reread(int npcId)
+    {
+        return new PersonalRecords(directory, DIRECT, DIRECT).get(npcId);
+    }
+
+    private static final class QueuedExecutor implements Executor
+    {
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable task)
+        {
+            tasks.add(task);
+        }
+
+        void runAll()
+        {
+            while (!tasks.isEmpty())
+            {
+                tasks.remove(0).run();
+            }
+        }
+    }
+}
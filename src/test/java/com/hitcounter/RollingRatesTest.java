@@ -0,0 +1,127 @@
+package com.hitcounter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class RollingRatesTest
+{
+    private static final HitCounterConfig.RateWindow[] WINDOWS = {
+            HitCounterConfig.RateWindow.TICKS_10,
+            HitCounterConfig.RateWindow.TICKS_100,
+            HitCounterConfig.RateWindow.TICKS_1000
+    };
+    private static final int[] WINDOW_TICKS = {10, 100, 1000};
+
+    @Test
+    public void isZeroBeforeAnyTickAndWhenOff()
+    {
+        RollingRates rates = new RollingRates();
+        assertEquals(0, rates.getHitsPerMinute(HitCounterConfig.RateWindow.TICKS_10), 0);
+
+        rates.advance(5);
+        rates.record(10);
+        assertEquals(0, rates.getHitsPerMinute(HitCounterConfig.RateWindow.OFF), 0);
+        assertEquals(0, rates.getDamagePerTick(HitCounterConfig.RateWindow.OFF), 0);
+    }
+
+    @Test
+    public void shortSessionsDivideByTheTicksSeen()
+    {
+        RollingRates rates = new RollingRates();
+        rates.advance(100);
+        rates.record(10);
+        rates.advance(101);
+        rates.record(20);
+
+        // Two ticks seen, so every window spans two ticks
+        assertEquals(100, rates.getHitsPerMinute(HitCounterConfig.RateWindow.TICKS_1000), 1e-9);
+        assertEquals(15, rates.getDamagePerTick(HitCounterConfig.RateWindow.TICKS_10), 1e-9);
+    }
+
+    @Test
+    public void ignoresTicksThatDoNotMoveForward()
+    {
+        RollingRates rates = new RollingRates();
+        rates.advance(50);
+        rates.record(4);
+        rates.advance(50);
+        rates.advance(49);
+        rates.record(6);
+
+        assertEquals(10, rates.getDamagePerTick(HitCounterConfig.RateWindow.TICKS_10), 1e-9);
+    }
+
+    @Test
+    public void matchesABruteForceCountWithGaps()
+    {
+        Random random = new Random(5);
+        RollingRates rates = new RollingRates();
+        List<int[]> recorded = new ArrayList<>();
+        int firstTick = 1000;
+        int tick = firstTick;
+        rates.advance(tick);
+
+        for (int i = 0; i < 20_000; i++)
+        {
+            int roll = random.nextInt(100);
+            if (roll < 60)
+            {
+                int amount = random.nextInt(50);
+                rates.record(amount);
+                recorded.add(new int[]{tick, amount});
+            }
+            else
+            {
+                // Mostly single ticks, with the odd gap past a window or the whole ring
+                tick += roll < 95 ? 1 : roll < 99 ? random.nextInt(150) + 1 : random.nextInt(3000) + 1;
+                rates.advance(tick);
+            }
+
+            if (i % 97 == 0)
+            {
+                assertMatches(rates, recorded, tick, tick - firstTick + 1);
+            }
+        }
+        assertMatches(rates, recorded, tick, tick - firstTick + 1);
+    }
+
+    @Test
+    public void clearStartsOver()
+    {
+        RollingRates rates = new RollingRates();
+        rates.advance(10);
+        rates.record(50);
+        rates.clear();
+
+        rates.advance(500);
+        rates.record(8);
+        assertEquals(8, rates.getDamagePerTick(HitCounterConfig.RateWindow.TICKS_100), 1e-9);
+        assertEquals(100, rates.getHitsPerMinute(HitCounterConfig.RateWindow.TICKS_100), 1e-9);
+    }
+
+    private static void assertMatches(RollingRates rates, List<int[]> recorded, int tick, int elapsed)
+    {
+        for (int w = 0; w < WINDOWS.length; w++)
+        {
+            int hits = 0;
+            long damage = 0;
+            for (int[] hit : recorded)
+            {
+                if (hit[0] > tick - WINDOW_TICKS[w])
+                {
+                    hits++;
+                    damage += hit[1];
+                }
+            }
+
+            int span = Math.min(WINDOW_TICKS[w], elapsed);
+            assertEquals(hits * 100.0 / span, rates.getHitsPerMinute(WINDOWS[w]), 1e-9);
+            assertEquals((double) damage / span, rates.getDamagePerTick(WINDOWS[w]), 1e-9);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.hitcounter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link HitCounterConfig} answering with its defaults, except for the values overridden by key.
+ */
+final class TestConfig
+{
+    final Map<String, Object> values = new HashMap<>();
+    final HitCounterConfig config = (HitCounterConfig) Proxy.newProxyInstance(HitCounterConfig.class.getClassLoader(),
+            new Class<?>[]{HitCounterConfig.class}, (proxy, method, args) -> value(proxy, method, args));
+
+    TestConfig set(String key, Object value)
+    {
+        values.put(key, value);
+        return this;
+    }
+
+    HitCounterSettings settings()
+    {
+        return HitCounterSettings.from(config);
+    }
+
+    private Object value(Object proxy, Method method, Object[] args) throws Throwable
+    {
+        Object value = values.get(method.getName());
+        if (value != null)
+        {
+            return value;
+        }
+
+        if (method.isDefault())
+        {
+            return MethodHandles.privateLookupIn(HitCounterConfig.class, MethodHandles.lookup())
+                    .unreflectSpecial(method, HitCounterConfig.class)
+                    .bindTo(proxy)
+                    .invokeWithArguments(args == null ? new Object[0] : args);
+        }
+
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class)
+        {
+            return false;
+        }
+        if (type == int.class)
+        {
+            return 0;
+        }
+        if (type == long.class)
+        {
+            return 0L;
+        }
+        if (type == double.class)
+        {
+            return 0d;
+        }
+        if (type == float.class)
+        {
+            return 0f;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,120 @@
+package com.hitcounter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TriggerTableTest
+{
+    private static final int HIGHLIGHT = 1 << HitCounterConfig.TriggerEffectMode.HIGHLIGHT.ordinal();
+    private static final int SOUND = 1 << HitCounterConfig.TriggerEffectMode.SOUND.ordinal();
+    private static final int FLASH = 1 << HitCounterConfig.TriggerEffectMode.FLASH.ordinal();
+
+    private static final int NPC = 2042;
+
+    @Test
+    public void matchesExactCountsRangesAndMultiples()
+    {
+        TriggerTable table = compile("5: sound; 10-12: highlight\nevery 4: flash");
+        assertEquals(3, table.size());
+
+        assertEquals(SOUND, table.effectsAt(5, NPC));
+        assertEquals(HIGHLIGHT, table.effectsAt(11, NPC));
+        assertEquals(HIGHLIGHT | FLASH, table.effectsAt(12, NPC));
+        assertEquals(FLASH, table.effectsAt(400000, NPC));
+        assertEquals(0, table.effectsAt(6, NPC));
+        assertEquals(0, table.effectsAt(0, NPC));
+    }
+
+    @Test
+    public void effectsBetweenCoversEveryCountPassed()
+    {
+        TriggerTable table = compile("5: sound; 10-12: highlight; every 7: flash");
+
+        // From is exclusive and to inclusive
+        assertEquals(SOUND, table.effectsBetween(4, 5, NPC));
+        assertEquals(0, table.effectsBetween(5, 6, NPC));
+        assertEquals(SOUND | FLASH, table.effectsBetween(3, 9, NPC));
+        assertEquals(SOUND | FLASH | HIGHLIGHT, table.effectsBetween(0, 12, NPC));
+        assertEquals(0, table.effectsBetween(12, 12, NPC));
+        assertEquals(0, table.effectsBetween(12, 10, NPC));
+    }
+
+    @Test
+    public void effectsBetweenMatchesTheUnionOfEffectsAt()
+    {
+        TriggerTable table = compile("3: sound; 8-9: highlight; every 5: flash; 20: flash: " + NPC);
+        for (int from = -2; from < 25; from++)
+        {
+            for (int to = from; to < 30; to++)
+            {
+                int expected = 0;
+                for (int count = from + 1; count <= to; count++)
+                {
+                    expected |= table.effectsAt(count, NPC);
+                }
+                assertEquals(expected, table.effectsBetween(from, to, NPC));
+            }
+        }
+    }
+
+    @Test
+    public void emptyTableHasNoEffects()
+    {
+        TriggerTable table = compile("");
+        assertEquals(0, table.size());
+        assertEquals(0, table.effectsBetween(0, 1000, NPC));
+    }
+
+    @Test
+    public void rulesForAnNpcIdOnlyMatchThatId()
+    {
+        TriggerTable table = compile("5: sound: " + NPC);
+        assertEquals(SOUND, table.effectsAt(5, NPC));
+        assertEquals(0, table.effectsAt(5, NPC + 1));
+        assertFalse(table.needsName(NPC));
+    }
+
+    @Test
+    public void rulesForAnNpcNameMatchOnceTheNameIsResolved()
+    {
+        TriggerTable table = compile("5: highlight: Zulrah");
+        assertTrue(table.needsName(NPC));
+        assertFalse(table.isHighlighted(5, NPC));
+
+        table.resolveName(NPC, "ZULRAH");
+        table.resolveName(NPC + 1, "Goblin");
+        assertFalse(table.needsName(NPC));
+        assertTrue(table.isHighlighted(5, NPC));
+        assertFalse(table.isHighlighted(5, NPC + 1));
+    }
+
+    @Test
+    public void skipsInvalidRules()
+    {
+        TriggerTable table = compile("5; 0: sound; x: sound; 5: boom; every 0: flash; 3-2: sound; 7: none; 6: flash");
+        assertEquals(1, table.size());
+        assertEquals(FLASH, table.effectsAt(6, NPC));
+    }
+
+    @Test
+    public void includesTheLegacyTrigger()
+    {
+        TriggerTable every = TriggerTable.compile("", 3, HitCounterConfig.AudioTriggerMode.EVERY,
+                HitCounterConfig.TriggerEffectMode.SOUND);
+        assertEquals(SOUND, every.effectsAt(9, NPC));
+
+        TriggerTable exact = TriggerTable.compile("", 3, HitCounterConfig.AudioTriggerMode.EXACT,
+                HitCounterConfig.TriggerEffectMode.SOUND);
+        assertEquals(SOUND, exact.effectsAt(3, NPC));
+        assertEquals(0, exact.effectsAt(9, NPC));
+    }
+
+    private static TriggerTable compile(String rules)
+    {
+        return TriggerTable.compile(rules, 0, HitCounterConfig.AudioTriggerMode.EXACT,
+                HitCounterConfig.TriggerEffectMode.NONE);
+    }
+}